@@ -23,6 +23,9 @@ function injectTraceContext(headers: Record<string, string>): void {
  * Strips the /api/<prefix> from the path and rewrites to the backend URL.
  * Passes the Authorization header through if present.
  * Propagates W3C trace context (traceparent/tracestate) so backend spans attach to the same trace.
+ * Passes conditional-GET validators (If-None-Match / ETag, Cache-Control) both ways so
+ * backend 304s reach the browser as header-only responses.
+ * Passes Retry-After back so a shed checkout (429) tells the browser when to retry.
  */
 export async function proxyRequest(
   req: NextRequest,
@@ -48,6 +51,16 @@ export async function proxyRequest(
     headers["Authorization"] = `Bearer ${token}`;
   }
 
+  const ifNoneMatch = req.headers.get("if-none-match");
+  if (ifNoneMatch) {
+    headers["If-None-Match"] = ifNoneMatch;
+  }
+
+  const idempotencyKey = req.headers.get("idempotency-key");
+  if (idempotencyKey) {
+    headers["Idempotency-Key"] = idempotencyKey;
+  }
+
   // Propagate W3C trace context so backend spans attach to the same trace (frontend → inventory-service → L2 → DB).
   const traceparent = req.headers.get("traceparent");
   if (traceparent) {
@@ -81,7 +94,7 @@ export async function proxyRequest(
   try {
     const backendRes = await fetch(backendUrl, init);
     clearTimeout(timeout);
-    const data = await backendRes.text();
+    const data = backendRes.status === 304 ? null : await backendRes.text();
     const duration = Date.now() - start;
 
     console.log(
@@ -96,11 +109,22 @@ export async function proxyRequest(
       }),
     );
 
+    const responseHeaders: Record<string, string> = {
+      "Content-Type": backendRes.headers.get("Content-Type") ?? "application/json",
+    };
+    const etag = backendRes.headers.get("ETag");
+    if (etag) {
+      responseHeaders["ETag"] = etag;
+      responseHeaders["Cache-Control"] = backendRes.headers.get("Cache-Control") ?? "no-cache";
+    }
+    const retryAfter = backendRes.headers.get("Retry-After");
+    if (retryAfter) {
+      responseHeaders["Retry-After"] = retryAfter;
+    }
+
     return new NextResponse(data, {
       status: backendRes.status,
-      headers: {
-        "Content-Type": backendRes.headers.get("Content-Type") ?? "application/json",
-      },
+      headers: responseHeaders,
     });
   } catch (error) {
     clearTimeout(timeout);
@@ -92,6 +92,7 @@ export interface OrderResponse {
   items: OrderItemResponse[];
   createdAt: string;
   updatedAt: string;
+  version: number;
 }
 
 // ─── Payment Service DTOs ───
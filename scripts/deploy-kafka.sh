@@ -87,12 +87,33 @@ echo "  --- Main Topics ---"
 MAIN_TOPICS=(
     "order-created"
     "inventory-reserved"
+    "inventory-order-reserved"
     "inventory-released"
     "payment-completed"
     "payment-failed"
 )
 for t in "${MAIN_TOPICS[@]}"; do create_topic "$t"; done
 
+# ─── Compacted state topics (latest value per key, replayed on startup) ───
+echo ""
+echo "  --- Compacted Topics ---"
+create_compacted_topic() {
+    local topic=$1
+    echo "  Creating (compacted): ${topic}"
+    kubectl exec -n retail-data kafka-0 -- \
+        kafka-topics --create \
+        --bootstrap-server localhost:9092 \
+        --topic "${topic}" \
+        --partitions "${PARTITIONS}" \
+        --replication-factor "${REPLICATION}" \
+        --config cleanup.policy=compact \
+        --config min.cleanable.dirty.ratio=0.1 \
+        --config segment.ms=600000 \
+        --if-not-exists \
+        2>/dev/null || true
+}
+create_compacted_topic "inventory-availability"
+
 # ─── Retry topics (Spring Kafka @RetryableTopic) ───
 # Order Service: 3 attempts = 2 retry topics (attempt 1 = main, 2 = retry-0, 3 = retry-1)
 # Payment Service: 3 attempts = 2 retry topics
@@ -102,6 +123,8 @@ echo "  --- Retry Topics (Order Service) ---"
 ORDER_RETRY_TOPICS=(
     "inventory-reserved-retry-0"
     "inventory-reserved-retry-1"
+    "inventory-order-reserved-retry-0"
+    "inventory-order-reserved-retry-1"
     "payment-completed-retry-0"
     "payment-completed-retry-1"
     "payment-failed-retry-0"
@@ -134,6 +157,7 @@ echo ""
 echo "  --- Dead Letter Topics (DLT) ---"
 DLT_TOPICS=(
     "inventory-reserved-dlt"
+    "inventory-order-reserved-dlt"
     "payment-completed-dlt"
     "payment-failed-dlt"
     "order-created-dlt"
@@ -0,0 +1,98 @@
+#!/bin/bash
+# =============================================================================
+# measure-order-insert-batching.sh - JDBC round trips for one 20-line order
+# =============================================================================
+#
+# Places a 20-line order against the running order-service twice, once with
+# JDBC batching off (hibernate.jdbc.batch_size=0, one INSERT per row, as with
+# IDENTITY ids) and once with the configured batch size, and prints the
+# Hibernate session metrics for each: JDBC statements and JDBC batches
+# executed. The deployment is restarted for each run and restored at the end.
+#
+# Usage: ./scripts/measure-order-insert-batching.sh [batch-size]   (default 25)
+#
+# Requires: kubectl (cluster from create-cluster.sh), curl, jq, and products
+#           1-20 in stock (the V4 seed).
+# =============================================================================
+
+set -euo pipefail
+
+NAMESPACE="retail-app"
+BATCH_SIZE="${1:-25}"
+LINES=20
+ORDER_PORT=18081
+USER_PORT=18082
+
+if ! kubectl cluster-info &> /dev/null; then
+    echo "ERROR: Cannot connect to Kubernetes cluster."
+    exit 1
+fi
+for tool in curl jq; do
+    command -v "$tool" &> /dev/null || { echo "ERROR: $tool is required."; exit 1; }
+done
+
+PF_PIDS=()
+cleanup() {
+    for pid in "${PF_PIDS[@]}"; do kill "$pid" 2> /dev/null || true; done
+    echo ""
+    echo "Restoring order-service configuration..."
+    kubectl set env deployment/order-service -n "$NAMESPACE" SPRING_APPLICATION_JSON- > /dev/null
+    kubectl rollout status deployment/order-service -n "$NAMESPACE" --timeout=180s > /dev/null
+}
+trap cleanup EXIT
+
+port_forward() {
+    kubectl port-forward -n "$NAMESPACE" "svc/$1" "$2:80" > /dev/null 2>&1 &
+    PF_PIDS+=($!)
+}
+
+# --- Token for a throwaway user ---
+port_forward user-service "$USER_PORT"
+sleep 2
+EMAIL="batching-$(date +%s)@example.com"
+curl -sf -X POST "http://localhost:${USER_PORT}/api/auth/register" \
+    -H "Content-Type: application/json" -H "X-API-Version: 1" \
+    -d "{\"email\":\"${EMAIL}\",\"password\":\"Measure123!\",\"firstName\":\"Batch\",\"lastName\":\"Measure\"}" > /dev/null
+TOKEN=$(curl -sf -X POST "http://localhost:${USER_PORT}/api/auth/login" \
+    -H "Content-Type: application/json" -H "X-API-Version: 1" \
+    -d "{\"email\":\"${EMAIL}\",\"password\":\"Measure123!\"}" | jq -r .token)
+
+# Names and prices are taken from the catalog; the request values are placeholders.
+ORDER=$(jq -n --argjson lines "$LINES" '{
+    shippingAddress: "1 Measurement Way",
+    items: [range(1; $lines + 1) | {productId: ., productName: "p", quantity: 1, unitPrice: 0}]
+}')
+
+measure() {
+    local label="$1" batch_size="$2"
+    local json
+    json=$(jq -cn --arg b "$batch_size" '{
+        "spring.jpa.properties.hibernate.jdbc.batch_size": $b,
+        "spring.jpa.properties.hibernate.generate_statistics": "true",
+        "logging.level.org.hibernate.engine.internal.StatisticalLoggingSessionEventListener": "INFO"
+    }')
+    kubectl set env deployment/order-service -n "$NAMESPACE" "SPRING_APPLICATION_JSON=${json}" > /dev/null
+    kubectl rollout status deployment/order-service -n "$NAMESPACE" --timeout=180s > /dev/null
+
+    port_forward order-service "$ORDER_PORT"
+    sleep 2
+    local since
+    since=$(date -u +%Y-%m-%dT%H:%M:%SZ)
+    local status
+    status=$(curl -s -o /dev/null -w "%{http_code}" -X POST "http://localhost:${ORDER_PORT}/api/orders" \
+        -H "Content-Type: application/json" -H "X-API-Version: 1" \
+        -H "Authorization: Bearer ${TOKEN}" -d "$ORDER")
+    sleep 3
+    kill "${PF_PIDS[-1]}" 2> /dev/null || true
+
+    # Sum over every session of the request (insert, status change, outbox).
+    local logs statements batches
+    logs=$(kubectl logs deployment/order-service -n "$NAMESPACE" --since-time="$since" 2> /dev/null)
+    statements=$(grep -oE 'executing [0-9]+ JDBC statements' <<< "$logs" | awk '{s += $2} END {print s + 0}')
+    batches=$(grep -oE 'executing [0-9]+ JDBC batches' <<< "$logs" | awk '{s += $2} END {print s + 0}')
+    printf "  %-24s HTTP %s   JDBC statements: %-4s JDBC batches: %s\n" "$label" "$status" "$statements" "$batches"
+}
+
+echo "One ${LINES}-line order (POST /api/orders):"
+measure "batching off" 0
+measure "batch_size=${BATCH_SIZE}" "$BATCH_SIZE"
@@ -0,0 +1,94 @@
+#!/bin/bash
+# =============================================================================
+# measure-reservation-throughput.sh - Reserves/s on one SKU, in-place vs ledger
+# =============================================================================
+#
+# Drives POST /api/inventory/reserve (quantity 1) against a single product from
+# CONCURRENCY parallel clients for DURATION seconds, once with
+# INVENTORY_STOCK_MODE=in-place and once with ledger, and prints the decided
+# reservations per second for each (429s from the reservation limiter are
+# counted separately). The product's stock is raised before each run so no
+# request fails for lack of stock, and restored at the end together with the
+# deployment.
+#
+# Usage: ./scripts/measure-reservation-throughput.sh [product-id] [duration-s] [concurrency]
+#        (defaults: 9, 30, 32)
+#
+# Requires: kubectl (cluster from create-cluster.sh), curl, and no
+#           HOT_SKU_PRODUCT_IDS on inventory-service (the hot-SKU queue is
+#           in-place only).
+# =============================================================================
+
+set -euo pipefail
+
+NAMESPACE="retail-app"
+DATA_NAMESPACE="retail-data"
+PRODUCT_ID="${1:-9}"
+DURATION="${2:-30}"
+CONCURRENCY="${3:-32}"
+PORT=18083
+STOCK=10000000
+
+if ! kubectl cluster-info &> /dev/null; then
+    echo "ERROR: Cannot connect to Kubernetes cluster."
+    exit 1
+fi
+command -v curl &> /dev/null || { echo "ERROR: curl is required."; exit 1; }
+
+psql_inventory() {
+    kubectl exec -n "$DATA_NAMESPACE" postgres-0 -- psql -U retail_user -d inventory_db -tA -c "$1"
+}
+
+ORIGINAL=$(psql_inventory "SELECT quantity || ' ' || reserved FROM inventory WHERE product_id = ${PRODUCT_ID}")
+[ -n "$ORIGINAL" ] || { echo "ERROR: product ${PRODUCT_ID} has no inventory row."; exit 1; }
+read -r ORIGINAL_QUANTITY ORIGINAL_RESERVED <<< "$ORIGINAL"
+
+PF_PID=""
+cleanup() {
+    [ -n "$PF_PID" ] && kill "$PF_PID" 2> /dev/null || true
+    echo ""
+    echo "Restoring inventory-service configuration and stock of product ${PRODUCT_ID}..."
+    # Back to in-place only after the ledger run has been folded (one compaction).
+    sleep 2
+    kubectl set env deployment/inventory-service -n "$NAMESPACE" INVENTORY_STOCK_MODE- > /dev/null
+    kubectl rollout status deployment/inventory-service -n "$NAMESPACE" --timeout=180s > /dev/null
+    psql_inventory "UPDATE inventory SET quantity = ${ORIGINAL_QUANTITY}, reserved = ${ORIGINAL_RESERVED}
+                    WHERE product_id = ${PRODUCT_ID}" > /dev/null
+}
+trap cleanup EXIT
+
+worker() {
+    local worker_id="$1" end_at="$2" n=0
+    while [ "$(date +%s)" -lt "$end_at" ]; do
+        n=$((n + 1))
+        curl -s -o /dev/null -w "%{http_code}\n" -X POST -H "X-API-Version: 1" \
+            "http://localhost:${PORT}/api/inventory/reserve?orderId=$((worker_id * 1000000 + n))&productId=${PRODUCT_ID}&quantity=1"
+    done
+}
+
+measure() {
+    local mode="$1"
+    kubectl set env deployment/inventory-service -n "$NAMESPACE" "INVENTORY_STOCK_MODE=${mode}" > /dev/null
+    kubectl rollout status deployment/inventory-service -n "$NAMESPACE" --timeout=180s > /dev/null
+    psql_inventory "UPDATE inventory SET quantity = ${STOCK}, reserved = 0 WHERE product_id = ${PRODUCT_ID}" > /dev/null
+
+    kubectl port-forward -n "$NAMESPACE" svc/inventory-service "$PORT:80" > /dev/null 2>&1 &
+    PF_PID=$!
+    sleep 2
+
+    local end_at codes
+    end_at=$(( $(date +%s) + DURATION ))
+    codes=$(for i in $(seq 1 "$CONCURRENCY"); do worker "$i" "$end_at" & done; wait)
+    kill "$PF_PID" 2> /dev/null || true
+    PF_PID=""
+
+    local ok shed other
+    ok=$(grep -c '^200$' <<< "$codes" || true)
+    shed=$(grep -c '^429$' <<< "$codes" || true)
+    other=$(grep -vcE '^(200|429)$' <<< "$codes" || true)
+    printf "  %-10s reserved/s: %-8s 429: %-6s other: %s\n" "$mode" "$((ok / DURATION))" "$shed" "$other"
+}
+
+echo "Reservations on product ${PRODUCT_ID}, ${CONCURRENCY} clients, ${DURATION}s each:"
+measure in-place
+measure ledger
@@ -57,8 +57,8 @@ dependencies {
     runtimeOnly("io.jsonwebtoken:jjwt-impl:0.12.6")
     runtimeOnly("io.jsonwebtoken:jjwt-jackson:0.12.6")
 
-    // Database
-    runtimeOnly("org.postgresql:postgresql")
+    // Database (compile scope: bulk ingest uses the pgjdbc CopyManager API)
+    implementation("org.postgresql:postgresql")
     implementation("org.springframework.boot:spring-boot-starter-flyway")
     implementation("org.flywaydb:flyway-database-postgresql")
 
@@ -3,18 +3,25 @@ package com.retail.inventoryservice.config;
 import com.github.benmanes.caffeine.cache.Caffeine;
 import com.github.benmanes.caffeine.cache.Expiry;
 import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.cache.CacheManager;
 import org.springframework.cache.caffeine.CaffeineCacheManager;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Primary;
+import org.springframework.data.redis.cache.BatchStrategies;
 import org.springframework.data.redis.cache.RedisCacheConfiguration;
 import org.springframework.data.redis.cache.RedisCacheManager;
+import org.springframework.data.redis.cache.RedisCacheWriter;
 import org.springframework.data.redis.connection.RedisConnectionFactory;
 import org.springframework.data.redis.serializer.GenericJacksonJsonRedisSerializer;
 import org.springframework.data.redis.serializer.RedisSerializationContext.SerializationPair;
+import org.springframework.util.unit.DataSize;
+import tools.jackson.databind.ObjectMapper;
 
 import java.time.Duration;
+import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ThreadLocalRandom;
 
 @Configuration
@@ -31,14 +38,19 @@ public class CacheConfig {
                 .serializeValuesWith(
                         SerializationPair.fromSerializer(GenericJacksonJsonRedisSerializer.builder().build()));
 
-        return RedisCacheManager.builder(redisConnectionFactory)
+        // SCAN-based batch clear: bulk ingest clears the whole product cache in one pass,
+        // and KEYS would block Dragonfly on a large keyspace.
+        RedisCacheWriter cacheWriter = RedisCacheWriter.nonLockingRedisCacheWriter(
+                redisConnectionFactory, BatchStrategies.scan(1000));
+
+        return RedisCacheManager.builder(cacheWriter)
                 .cacheDefaults(redisConfig)
                 .build();
     }
 
     @Bean
     public CaffeineCacheManager caffeineCacheManager() {
-        CaffeineCacheManager manager = new CaffeineCacheManager("product");
+        CaffeineCacheManager manager = new CaffeineCacheManager("product", "product-bytes");
         manager.setCaffeine(Caffeine.newBuilder()
                 .maximumSize(1000)
                 .expireAfter(new Expiry<Object, Object>() {
@@ -61,11 +73,26 @@ public class CacheConfig {
         return manager;
     }
 
+    /**
+     * Pre-serialized JSON/gzip bodies for product endpoints. L1 only, same TTL policy as
+     * the product L1, gzip variant built once at the server compression threshold.
+     */
+    @Bean
+    public ResponseBytesCache responseBytesCache(CaffeineCacheManager caffeineCacheManager,
+                                                 ObjectMapper objectMapper,
+                                                 MeterRegistry meterRegistry,
+                                                 @Value("${server.compression.min-response-size:1024}") DataSize gzipMinSize) {
+        return new ResponseBytesCache(caffeineCacheManager.getCache("product-bytes"),
+                objectMapper, (int) gzipMinSize.toBytes(), meterRegistry);
+    }
+
     @Bean
     @Primary
     public CacheManager cacheManager(CaffeineCacheManager caffeineCacheManager,
                                     RedisCacheManager redisCacheManager,
-                                    MeterRegistry meterRegistry) {
-        return new TieredCacheManager(caffeineCacheManager, redisCacheManager, meterRegistry);
+                                    MeterRegistry meterRegistry,
+                                    ResponseBytesCache responseBytesCache) {
+        return new TieredCacheManager(caffeineCacheManager, redisCacheManager, meterRegistry,
+                Set.of("product"), Map.of("product-bytes", responseBytesCache));
     }
 }
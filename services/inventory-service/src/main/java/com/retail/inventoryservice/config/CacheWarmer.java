@@ -5,6 +5,7 @@ import com.retail.inventoryservice.entity.Inventory;
 import com.retail.inventoryservice.entity.Product;
 import com.retail.inventoryservice.repository.InventoryRepository;
 import com.retail.inventoryservice.repository.ProductRepository;
+import com.retail.inventoryservice.service.BestSellerTracker;
 import com.retail.inventoryservice.service.ProductAccessTracker;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.boot.ApplicationArguments;
@@ -13,30 +14,36 @@ import org.springframework.cache.Cache;
 import org.springframework.cache.CacheManager;
 import org.springframework.stereotype.Component;
 
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Set;
 
 /**
  * Pre-warms the tiered product cache (L1 + L2) on startup.
- * Uses the sliding window access tracker to identify the top 100 hot products
- * from the last 6 hours. Falls back to a static top-100 query on first deploy
- * when no access data exists. Uses versioned keys so the same format as @Cacheable.
+ * Takes the top 100 products of the last 6 hours: best sellers first (whatever the
+ * payment-completed replay has counted by now), then the most viewed from the sliding
+ * window access tracker. Falls back to a static top-100 query on first deploy
+ * when no data exists. Uses versioned keys so the same format as @Cacheable.
  */
 @Slf4j
 @Component
 public class CacheWarmer implements ApplicationRunner {
 
     private final ProductAccessTracker accessTracker;
+    private final BestSellerTracker bestSellerTracker;
     private final ProductRepository productRepository;
     private final InventoryRepository inventoryRepository;
     private final CacheManager cacheManager;
     private final ProductCacheKeyGenerator keyGenerator;
 
     public CacheWarmer(ProductAccessTracker accessTracker,
+                       BestSellerTracker bestSellerTracker,
                        ProductRepository productRepository,
                        InventoryRepository inventoryRepository,
                        CacheManager cacheManager,
                        ProductCacheKeyGenerator keyGenerator) {
         this.accessTracker = accessTracker;
+        this.bestSellerTracker = bestSellerTracker;
         this.productRepository = productRepository;
         this.inventoryRepository = inventoryRepository;
         this.cacheManager = cacheManager;
@@ -45,8 +52,13 @@ public class CacheWarmer implements ApplicationRunner {
 
     @Override
     public void run(ApplicationArguments args) {
-        String source = "sliding window";
-        List<Long> hotProducts = accessTracker.getHotProducts(100, 6);
+        String source = "best sellers + sliding window";
+        Set<Long> ranked = new LinkedHashSet<>(bestSellerTracker.topProductIds(6, 100));
+        for (Long productId : accessTracker.getHotProducts(100, 6)) {
+            if (ranked.size() >= 100) break;
+            ranked.add(productId);
+        }
+        List<Long> hotProducts = List.copyOf(ranked);
 
         if (hotProducts.isEmpty()) {
             source = "static fallback";
@@ -77,7 +89,9 @@ public class CacheWarmer implements ApplicationRunner {
                         product.getPrice(),
                         product.getCategory(),
                         product.getImageUrl(),
-                        stock));
+                        stock,
+                        product.isActive(),
+                        product.getVersion()));
                 count++;
             } catch (Exception e) {
                 log.warn("Failed to pre-warm product {}: {}", productId, e.getMessage());
@@ -2,6 +2,7 @@ package com.retail.inventoryservice.config;
 
 import org.springframework.cache.interceptor.KeyGenerator;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Component;
 
 import java.lang.reflect.Method;
@@ -10,11 +11,12 @@ import java.lang.reflect.Method;
  * Generates versioned cache keys for the product cache so schema/API changes
  * can invalidate all entries by bumping the version.
  * Format: product:v{version}:{productId}
+ * Listing pages (response bytes only): products:v{version}:g{generation}:api{apiVersion}:{category}:{page}:{size}:{sort}
  */
 @Component("productCacheKeyGenerator")
 public class ProductCacheKeyGenerator implements KeyGenerator {
 
-    @Value("${cache.product.schema-version:1}")
+    @Value("${cache.product.schema-version:3}")
     private int schemaVersion;
 
     @Override
@@ -30,15 +32,26 @@ public class ProductCacheKeyGenerator implements KeyGenerator {
         return "product:v" + schemaVersion + ":" + productId;
     }
 
+    /**
+     * Builds the key for a rendered product listing page. The generation comes from
+     * ResponseBytesCache and changes when the whole catalog is cleared (bulk ingest) or
+     * a product's catalog fields change.
+     */
+    public String keyForListing(long generation, String apiVersion, String category, Pageable pageable) {
+        return "products:v" + schemaVersion + ":g" + generation + ":api" + apiVersion + ":"
+                + (category != null ? category : "*") + ":"
+                + pageable.getPageNumber() + ":" + pageable.getPageSize() + ":" + pageable.getSort();
+    }
+
     private static Long resolveProductId(String methodName, Object... params) {
         switch (methodName) {
             case "getProduct":
+            case "reserveStockBatch":
                 return params.length > 0 && params[0] instanceof Long ? (Long) params[0] : null;
             case "reserveStock":
-                return params.length > 1 && params[1] instanceof Long ? (Long) params[1] : null;
             case "confirmDeduction":
             case "releaseReservation":
-                return params.length > 0 && params[0] instanceof Long ? (Long) params[0] : null;
+                return params.length > 1 && params[1] instanceof Long ? (Long) params[1] : null;
             default:
                 return params.length > 0 && params[0] instanceof Long ? (Long) params[0] : null;
         }
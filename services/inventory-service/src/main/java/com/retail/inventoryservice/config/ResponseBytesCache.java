@@ -0,0 +1,234 @@
+package com.retail.inventoryservice.config;
+
+import com.retail.inventoryservice.dto.ListedProduct;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.cache.Cache;
+import org.springframework.data.domain.Page;
+import tools.jackson.databind.ObjectMapper;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.OptionalInt;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongFunction;
+import java.util.function.Supplier;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Local (L1-only) cache of pre-serialized JSON response bodies, plus a gzip variant.
+ *
+ * Sits next to the "product" object cache under the name "product-bytes" and uses the
+ * same ProductCacheKeyGenerator keys, so every @CacheEvict on a product also drops its
+ * rendered bytes. Listing pages cannot be evicted per product. Their keys embed a
+ * listing generation, bumped by clear() (catalog ingest) and by invalidateListings()
+ * (a catalog edit made elsewhere, see ProductChangeInvalidator), and each page
+ * remembers the stock it was rendered with: a page whose stock no longer matches the
+ * availability index is rendered again, so reservations do not throw away every page.
+ *
+ * Bytes are never stored in L2: they are cheap to rebuild from the L1/L2 object entry
+ * and would only duplicate the product cache in Dragonfly.
+ *
+ * Each entry carries a strong ETag (digest of the JSON bytes), so conditional GETs are
+ * answered from this cache without touching the object cache or the DB.
+ */
+public class ResponseBytesCache implements Cache {
+
+    private final Cache delegate;
+    private final ObjectMapper objectMapper;
+    private final int gzipMinSize;
+    private final AtomicLong listingGeneration = new AtomicLong();
+    private final Counter hitCounter;
+    private final Counter missCounter;
+    private final Counter staleCounter;
+
+    public ResponseBytesCache(Cache delegate, ObjectMapper objectMapper, int gzipMinSize, MeterRegistry registry) {
+        this.delegate = delegate;
+        this.objectMapper = objectMapper;
+        this.gzipMinSize = gzipMinSize;
+        this.hitCounter = Counter.builder("cache.gets")
+                .tag("cache", delegate.getName())
+                .tag("result", "l1_hit")
+                .register(registry);
+        this.missCounter = Counter.builder("cache.gets")
+                .tag("cache", delegate.getName())
+                .tag("result", "miss")
+                .register(registry);
+        this.staleCounter = Counter.builder("cache.gets")
+                .tag("cache", delegate.getName())
+                .tag("result", "stale")
+                .register(registry);
+    }
+
+    /**
+     * Returns the rendered bytes for the key, serializing (and gzipping) the value produced
+     * by the renderer on a miss. The renderer usually hits the "product" object cache.
+     */
+    public RenderedResponse getOrRender(String key, Supplier<?> renderer) {
+        RenderedResponse cached = delegate.get(key, RenderedResponse.class);
+        if (cached != null) {
+            hitCounter.increment();
+            return cached;
+        }
+        missCounter.increment();
+        RenderedResponse rendered = render(renderer.get());
+        delegate.put(key, rendered);
+        return rendered;
+    }
+
+    /**
+     * As getOrRender, for a listing page. A cached page is served only while every row's
+     * stock agrees with currentStock; a row currentStock does not know is not checked
+     * (the page then ages out with the L1 TTL).
+     */
+    public RenderedResponse getOrRenderListing(String key, Supplier<? extends Page<? extends ListedProduct>> renderer,
+                                               LongFunction<OptionalInt> currentStock) {
+        RenderedListing cached = delegate.get(key, RenderedListing.class);
+        if (cached != null) {
+            if (!cached.isStale(currentStock)) {
+                hitCounter.increment();
+                return cached.body();
+            }
+            staleCounter.increment();
+        } else {
+            missCounter.increment();
+        }
+        Page<? extends ListedProduct> page = renderer.get();
+        List<? extends ListedProduct> rows = page.getContent();
+        long[] productIds = new long[rows.size()];
+        int[] stock = new int[rows.size()];
+        for (int i = 0; i < rows.size(); i++) {
+            productIds[i] = rows.get(i).id();
+            stock[i] = rows.get(i).availableStock();
+        }
+        RenderedListing rendered = new RenderedListing(render(page), productIds, stock);
+        delegate.put(key, rendered);
+        return rendered.body();
+    }
+
+    /**
+     * Current listing generation, embedded in listing keys by ProductCacheKeyGenerator.
+     */
+    public long listingGeneration() {
+        return listingGeneration.get();
+    }
+
+    /**
+     * Retires every rendered listing page; they are rendered again on their next request.
+     */
+    public void invalidateListings() {
+        listingGeneration.incrementAndGet();
+    }
+
+    private RenderedResponse render(Object value) {
+        byte[] json = objectMapper.writeValueAsBytes(value);
+        byte[] gzip = json.length >= gzipMinSize ? gzip(json) : null;
+        return new RenderedResponse(json, gzip, digest(json));
+    }
+
+    /**
+     * Stock mutations are conditional bulk UPDATEs that do not bump Inventory.version,
+     * so the entity versions cannot tell two stock levels apart. The representation
+     * itself is the reliable validator.
+     */
+    private static String digest(byte[] json) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(json);
+            return HexFormat.of().formatHex(hash, 0, 16);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static byte[] gzip(byte[] json) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(json.length / 4 + 64);
+        try (GZIPOutputStream gz = new GZIPOutputStream(out)) {
+            gz.write(json);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
+
+    @Override
+    public String getName() {
+        return delegate.getName();
+    }
+
+    @Override
+    public Object getNativeCache() {
+        return delegate.getNativeCache();
+    }
+
+    @Override
+    public ValueWrapper get(Object key) {
+        return delegate.get(key);
+    }
+
+    @Override
+    public <T> T get(Object key, Class<T> type) {
+        return delegate.get(key, type);
+    }
+
+    @Override
+    public <T> T get(Object key, Callable<T> valueLoader) {
+        return delegate.get(key, valueLoader);
+    }
+
+    @Override
+    public void put(Object key, Object value) {
+        delegate.put(key, value);
+    }
+
+    @Override
+    public void evict(Object key) {
+        delegate.evict(key);
+    }
+
+    @Override
+    public void clear() {
+        delegate.clear();
+        invalidateListings();
+    }
+
+    /**
+     * A rendered listing page and the (productId, availableStock) of its rows at render time.
+     */
+    record RenderedListing(RenderedResponse body, long[] productIds, int[] stock) {
+
+        boolean isStale(LongFunction<OptionalInt> currentStock) {
+            for (int i = 0; i < productIds.length; i++) {
+                OptionalInt current = currentStock.apply(productIds[i]);
+                if (current.isPresent() && current.getAsInt() != stock[i]) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Serialized JSON body and, when above the compression threshold, its gzip encoding.
+     * The gzip variant gets its own strong ETag since its bytes differ.
+     */
+    public record RenderedResponse(byte[] json, byte[] gzip, String digest) {
+
+        public boolean hasGzip() {
+            return gzip != null;
+        }
+
+        public String etag() {
+            return "\"" + digest + "\"";
+        }
+
+        public String gzipEtag() {
+            return "\"" + digest + "-gzip\"";
+        }
+    }
+}
@@ -9,7 +9,7 @@ import java.util.concurrent.Callable;
 /**
  * Two-tier cache: L1 (local, e.g. Caffeine) then L2 (shared, e.g. Redis/Dragonfly).
  * On get: L1 → L2 (promote to L1 on L2 hit) → null (DB load).
- * On put/evict: both tiers.
+ * On put/evict: both tiers (null values: L1 only).
  * Emits metrics for cache_gets_total with result=l1_hit|l2_hit|miss for observability.
  */
 public class TieredCache implements Cache {
@@ -83,27 +83,47 @@ public class TieredCache implements Cache {
         return type.cast(value);
     }
 
+    /**
+     * The @Cacheable(sync = true) path. The L2 read and the load run inside L1's own
+     * per-key computation, so concurrent misses on one pod share a single L2 read and at
+     * most one DB load.
+     */
     @Override
     public <T> T get(Object key, Callable<T> valueLoader) {
-        ValueWrapper w = get(key);
+        ValueWrapper w = l1.get(key);
         if (w != null) {
+            if (l1HitCounter != null) l1HitCounter.increment();
             @SuppressWarnings("unchecked")
             T value = (T) w.get();
-            if (value != null) return value;
+            return value;
         }
-        try {
+        return l1.get(key, () -> {
+            ValueWrapper shared = l2.get(key);
+            if (shared != null) {
+                if (l2HitCounter != null) l2HitCounter.increment();
+                @SuppressWarnings("unchecked")
+                T value = (T) shared.get();
+                return value;
+            }
+            if (missCounter != null) missCounter.increment();
             T value = valueLoader.call();
-            put(key, value);
+            if (value != null) {
+                l2.put(key, value);
+            }
             return value;
-        } catch (Exception e) {
-            throw new ValueRetrievalException(key, valueLoader, e);
-        }
+        });
     }
 
+    /**
+     * Null results (lookups that found nothing) stay in L1 only: its short TTL bounds
+     * how long a not-yet-created row reads as absent, where L2 would pin it for minutes.
+     */
     @Override
     public void put(Object key, Object value) {
         l1.put(key, value);
-        l2.put(key, value);
+        if (value != null) {
+            l2.put(key, value);
+        }
     }
 
     @Override
@@ -0,0 +1,52 @@
+package com.retail.inventoryservice.controller;
+
+import com.retail.inventoryservice.service.CatalogExportService;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Admin catalog export for partners and search/analytics jobs.
+ * Writes NDJSON directly to the servlet output stream (gzip when accepted),
+ * so nothing is buffered beyond the stream buffer.
+ */
+@RestController
+@RequestMapping("/api/admin/products")
+public class CatalogExportController {
+
+    private static final String NDJSON = "application/x-ndjson";
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final CatalogExportService catalogExportService;
+
+    public CatalogExportController(CatalogExportService catalogExportService) {
+        this.catalogExportService = catalogExportService;
+    }
+
+    @GetMapping(path = "/export", version = "1")
+    public void exportCatalog(
+            @RequestParam(defaultValue = "false") boolean includeInactive,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+            HttpServletResponse response) throws IOException {
+        boolean gzip = HttpEncodings.acceptsGzip(acceptEncoding);
+        response.setContentType(NDJSON);
+        response.setCharacterEncoding("UTF-8");
+        response.setHeader(HttpHeaders.CACHE_CONTROL, "no-store");
+        response.setHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if (gzip) {
+            response.setHeader(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+
+        OutputStream raw = response.getOutputStream();
+        try (OutputStream out = gzip
+                ? new GZIPOutputStream(raw, BUFFER_SIZE)
+                : new BufferedOutputStream(raw, BUFFER_SIZE)) {
+            catalogExportService.exportCatalog(out, includeInactive);
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package com.retail.inventoryservice.controller;
+
+import com.retail.inventoryservice.dto.CatalogIngestResult;
+import com.retail.inventoryservice.service.CatalogIngestService;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Admin bulk catalog/restock ingest. Accepts a CSV or NDJSON feed (optionally
+ * gzip-encoded) and streams it straight into Postgres COPY without buffering.
+ *
+ * CSV columns: sku,name,description,price,category,image_url,active,quantity (header required).
+ * NDJSON fields: sku, name, description, price, category, imageUrl, active, quantity.
+ */
+@RestController
+@RequestMapping("/api/admin/products")
+public class CatalogIngestController {
+
+    private static final String CSV = "text/csv";
+    private static final String NDJSON = "application/x-ndjson";
+
+    private final CatalogIngestService catalogIngestService;
+
+    public CatalogIngestController(CatalogIngestService catalogIngestService) {
+        this.catalogIngestService = catalogIngestService;
+    }
+
+    @PostMapping(path = "/import", version = "1", consumes = {CSV, NDJSON})
+    public ResponseEntity<CatalogIngestResult> importCatalog(
+            @RequestHeader(HttpHeaders.CONTENT_TYPE) MediaType contentType,
+            @RequestHeader(value = HttpHeaders.CONTENT_ENCODING, required = false) String contentEncoding,
+            InputStream body) throws IOException {
+        CatalogIngestService.Format format = contentType.isCompatibleWith(MediaType.parseMediaType(CSV))
+                ? CatalogIngestService.Format.CSV
+                : CatalogIngestService.Format.NDJSON;
+        InputStream feed = "gzip".equalsIgnoreCase(contentEncoding) ? new GZIPInputStream(body, 64 * 1024) : body;
+        return ResponseEntity.ok(catalogIngestService.ingest(feed, format));
+    }
+}
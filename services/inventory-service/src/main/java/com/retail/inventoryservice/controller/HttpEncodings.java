@@ -0,0 +1,27 @@
+package com.retail.inventoryservice.controller;
+
+/**
+ * Accept-Encoding parsing shared by controllers that write pre-compressed or
+ * self-compressed bodies (server.compression skips those).
+ */
+final class HttpEncodings {
+
+    private HttpEncodings() {
+    }
+
+    static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        for (String token : acceptEncoding.split(",")) {
+            String[] parts = token.trim().split(";");
+            String coding = parts[0].trim();
+            if (!coding.equalsIgnoreCase("gzip") && !coding.equals("*")) {
+                continue;
+            }
+            boolean disabled = parts.length > 1 && parts[1].trim().replace(" ", "").matches("q=0(\\.0*)?");
+            return !disabled;
+        }
+        return false;
+    }
+}
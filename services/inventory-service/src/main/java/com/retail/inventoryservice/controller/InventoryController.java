@@ -1,60 +1,153 @@
 package com.retail.inventoryservice.controller;
 
-import com.retail.inventoryservice.dto.ProductResponse;
-import com.retail.inventoryservice.dto.ProductResponseV2;
+import com.retail.inventoryservice.config.ProductCacheKeyGenerator;
+import com.retail.inventoryservice.config.ResponseBytesCache;
+import com.retail.inventoryservice.config.ResponseBytesCache.RenderedResponse;
+import com.retail.inventoryservice.dto.BestSellersResponse;
+import com.retail.inventoryservice.dto.CatalogChangesResponse;
 import com.retail.inventoryservice.dto.StockCheckResponse;
+import com.retail.inventoryservice.service.BestSellerTracker;
+import com.retail.inventoryservice.service.CatalogChangeService;
+import com.retail.inventoryservice.service.HotSkuReservationQueue;
 import com.retail.inventoryservice.service.InventoryService;
 import com.retail.inventoryservice.service.ProductAccessTracker;
+import com.retail.inventoryservice.service.ProductIdFilter;
+import com.retail.inventoryservice.service.ProductNotFoundException;
+import com.retail.inventoryservice.service.ReservationLimiter;
+import com.retail.inventoryservice.service.StockAvailabilityIndex;
+import jakarta.validation.constraints.Max;
 import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.NotNull;
-import org.springframework.data.domain.Page;
+import org.springframework.boot.convert.DurationStyle;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.web.PageableDefault;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.time.Duration;
+import java.time.temporal.ChronoUnit;
+
+/**
+ * Product GETs are served from ResponseBytesCache: the JSON (and gzip) bodies are
+ * written as-is, so hot products skip Jackson and per-request compression entirely.
+ * Responses carrying Content-Encoding are left alone by server.compression.
+ *
+ * Every product and stock response carries a strong ETag and "Cache-Control: no-cache", so
+ * clients revalidate with If-None-Match and get a header-only 304 when nothing changed
+ * (the comparison is done by Spring when the ResponseEntity is handled).
+ */
 @RestController
 @RequestMapping("/api")
 public class InventoryController {
 
     private final InventoryService inventoryService;
     private final ProductAccessTracker accessTracker;
+    private final ResponseBytesCache responseBytesCache;
+    private final ProductCacheKeyGenerator keyGenerator;
+    private final CatalogChangeService catalogChangeService;
+    private final ProductIdFilter productIdFilter;
+    private final ReservationLimiter reservationLimiter;
+    private final HotSkuReservationQueue hotSkuReservationQueue;
+    private final BestSellerTracker bestSellerTracker;
+    private final StockAvailabilityIndex availabilityIndex;
 
     public InventoryController(InventoryService inventoryService,
-                               ProductAccessTracker accessTracker) {
+                               ProductAccessTracker accessTracker,
+                               ResponseBytesCache responseBytesCache,
+                               ProductCacheKeyGenerator keyGenerator,
+                               CatalogChangeService catalogChangeService,
+                               ProductIdFilter productIdFilter,
+                               ReservationLimiter reservationLimiter,
+                               HotSkuReservationQueue hotSkuReservationQueue,
+                               BestSellerTracker bestSellerTracker,
+                               StockAvailabilityIndex availabilityIndex) {
         this.inventoryService = inventoryService;
         this.accessTracker = accessTracker;
+        this.responseBytesCache = responseBytesCache;
+        this.keyGenerator = keyGenerator;
+        this.catalogChangeService = catalogChangeService;
+        this.productIdFilter = productIdFilter;
+        this.reservationLimiter = reservationLimiter;
+        this.hotSkuReservationQueue = hotSkuReservationQueue;
+        this.bestSellerTracker = bestSellerTracker;
+        this.availabilityIndex = availabilityIndex;
     }
 
     @GetMapping(path = "/products", version = "1")
-    public ResponseEntity<Page<ProductResponse>> getProducts(
+    public ResponseEntity<byte[]> getProducts(
             @RequestParam(required = false) String category,
-            @PageableDefault(size = 20) Pageable pageable) {
-        Page<ProductResponse> products = (category != null)
+            @PageableDefault(size = 20) Pageable pageable,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        String key = keyGenerator.keyForListing(responseBytesCache.listingGeneration(), "1", category, pageable);
+        RenderedResponse body = responseBytesCache.getOrRenderListing(key, () -> (category != null)
                 ? inventoryService.getProductsByCategory(category, pageable)
-                : inventoryService.getAllProducts(pageable);
-        return ResponseEntity.ok(products);
+                : inventoryService.getAllProducts(pageable), availabilityIndex::current);
+        return write(body, acceptEncoding);
     }
 
     @GetMapping(path = "/products", version = "2")
-    public ResponseEntity<Page<ProductResponseV2>> getProductsV2(
+    public ResponseEntity<byte[]> getProductsV2(
             @RequestParam(required = false) String category,
-            @PageableDefault(size = 20) Pageable pageable) {
-        Page<ProductResponseV2> products = (category != null)
+            @PageableDefault(size = 20) Pageable pageable,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        String key = keyGenerator.keyForListing(responseBytesCache.listingGeneration(), "2", category, pageable);
+        RenderedResponse body = responseBytesCache.getOrRenderListing(key, () -> (category != null)
                 ? inventoryService.getProductsByCategoryV2(category, pageable)
-                : inventoryService.getAllProductsV2(pageable);
-        return ResponseEntity.ok(products);
+                : inventoryService.getAllProductsV2(pageable), availabilityIndex::current);
+        return write(body, acceptEncoding);
+    }
+
+    /**
+     * Delta sync for catalog mirrors: products and stock changed after the watermark.
+     * Start with since=0 and keep passing back the returned watermark.
+     */
+    @GetMapping(path = "/products/changes", version = "1")
+    public ResponseEntity<CatalogChangesResponse> getCatalogChanges(
+            @RequestParam(defaultValue = "0") @Min(0) long since,
+            @RequestParam(defaultValue = "500") @Min(1) @Max(5000) int limit) {
+        return ResponseEntity.ok(catalogChangeService.getChangesSince(since, limit));
+    }
+
+    /**
+     * Most sold products over the window (whole hours, e.g. 1h, 6h, 24h), from
+     * payment-completed events. Not cached: it is computed from memory.
+     */
+    @GetMapping(path = "/products/bestsellers", version = "1")
+    public ResponseEntity<BestSellersResponse> getBestSellers(
+            @RequestParam(defaultValue = "24h") String window,
+            @RequestParam(defaultValue = "20") @Min(1) @Max(100) int limit) {
+        int windowHours = parseWindowHours(window);
+        return ResponseEntity.ok(new BestSellersResponse(windowHours, bestSellerTracker.topSellers(windowHours, limit)));
     }
 
     @GetMapping(path = "/products/{id}", version = "1")
-    public ResponseEntity<ProductResponse> getProduct(@PathVariable Long id) {
+    public ResponseEntity<byte[]> getProduct(
+            @PathVariable Long id,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        // Unknown ids stop here: no access tracking write, no L1/L2 lookup, no DB query.
+        if (productIdFilter.rejectsProduct(id)) {
+            throw new ProductNotFoundException(id);
+        }
         accessTracker.recordAccess(id);
-        return ResponseEntity.ok(inventoryService.getProduct(id));
+        RenderedResponse body = responseBytesCache.getOrRender(
+                keyGenerator.keyForProduct(id), () -> inventoryService.getProduct(id));
+        return write(body, acceptEncoding);
     }
 
+    /**
+     * The body is a function of (productId, availableStock), so that pair is a strong
+     * ETag and a poll whose stock has not moved is answered 304.
+     */
     @GetMapping(path = "/inventory/{productId}", version = "1")
     public ResponseEntity<StockCheckResponse> checkStock(@PathVariable Long productId) {
-        return ResponseEntity.ok(inventoryService.checkStock(productId));
+        StockCheckResponse stock = inventoryService.checkStock(productId);
+        return ResponseEntity.ok()
+                .cacheControl(CacheControl.noCache())
+                .eTag("\"stock-" + stock.productId() + "-" + stock.availableStock() + "\"")
+                .body(stock);
     }
 
     @PostMapping(path = "/inventory/reserve", version = "1")
@@ -62,10 +155,37 @@ public class InventoryController {
             @RequestParam @NotNull Long orderId,
             @RequestParam @NotNull Long productId,
             @RequestParam @Min(1) int quantity) {
-        boolean reserved = inventoryService.reserveStock(orderId, productId, quantity);
+        boolean reserved = reservationLimiter.execute(
+                () -> hotSkuReservationQueue.reserve(orderId, productId, quantity));
         if (reserved) {
             return ResponseEntity.ok(true);
         }
         return ResponseEntity.badRequest().body(false);
     }
+
+    private static int parseWindowHours(String window) {
+        Duration duration;
+        try {
+            duration = DurationStyle.detectAndParse(window, ChronoUnit.HOURS);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid window: " + window);
+        }
+        if (duration.isNegative() || duration.isZero() || duration.toMinutesPart() != 0 || duration.toSecondsPart() != 0) {
+            throw new IllegalArgumentException("window must be a whole number of hours: " + window);
+        }
+        return (int) Math.min(Integer.MAX_VALUE, duration.toHours());
+    }
+
+    private static ResponseEntity<byte[]> write(RenderedResponse body, String acceptEncoding) {
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .cacheControl(CacheControl.noCache())
+                .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if (body.hasGzip() && HttpEncodings.acceptsGzip(acceptEncoding)) {
+            return response.eTag(body.gzipEtag())
+                    .header(HttpHeaders.CONTENT_ENCODING, "gzip")
+                    .body(body.gzip());
+        }
+        return response.eTag(body.etag()).body(body.json());
+    }
 }
@@ -0,0 +1,6 @@
+package com.retail.inventoryservice.dto;
+
+public record BestSeller(
+        Long productId,
+        long unitsSold
+) {}
@@ -0,0 +1,8 @@
+package com.retail.inventoryservice.dto;
+
+import java.util.List;
+
+public record BestSellersResponse(
+        int windowHours,
+        List<BestSeller> products
+) {}
@@ -0,0 +1,20 @@
+package com.retail.inventoryservice.dto;
+
+import java.math.BigDecimal;
+
+/**
+ * Current state of a product whose catalog row or stock changed after the
+ * requested watermark. active = false is a tombstone (product deactivated).
+ */
+public record CatalogChange(
+        Long id,
+        String sku,
+        String name,
+        String description,
+        BigDecimal price,
+        String category,
+        String imageUrl,
+        boolean active,
+        int availableStock,
+        long changeSeq
+) {}
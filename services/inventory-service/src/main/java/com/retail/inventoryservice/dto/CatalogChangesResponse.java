@@ -0,0 +1,9 @@
+package com.retail.inventoryservice.dto;
+
+import java.util.List;
+
+public record CatalogChangesResponse(
+        List<CatalogChange> changes,
+        long watermark,
+        boolean hasMore
+) {}
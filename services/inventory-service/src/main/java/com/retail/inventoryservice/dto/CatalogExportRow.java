@@ -0,0 +1,15 @@
+package com.retail.inventoryservice.dto;
+
+import java.math.BigDecimal;
+
+public record CatalogExportRow(
+        Long id,
+        String name,
+        String description,
+        BigDecimal price,
+        String category,
+        String imageUrl,
+        boolean active,
+        int availableStock,
+        long version
+) {}
@@ -0,0 +1,9 @@
+package com.retail.inventoryservice.dto;
+
+public record CatalogIngestResult(
+        long rowsStaged,
+        long rowsRejected,
+        int productsUpserted,
+        int inventoryUpserted,
+        long durationMs
+) {}
@@ -0,0 +1,11 @@
+package com.retail.inventoryservice.dto;
+
+/**
+ * What ResponseBytesCache needs from a listing row to tell whether its stock is stale.
+ */
+public interface ListedProduct {
+
+    Long id();
+
+    int availableStock();
+}
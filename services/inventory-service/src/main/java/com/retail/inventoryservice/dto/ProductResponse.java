@@ -9,5 +9,7 @@ public record ProductResponse(
         BigDecimal price,
         String category,
         String imageUrl,
-        int availableStock
-) {}
+        int availableStock,
+        boolean active,
+        Long version
+) implements ListedProduct {}
@@ -11,4 +11,4 @@ public record ProductResponseV2(
         String imageUrl,
         int availableStock,
         StockStatus stockStatus
-) {}
+) implements ListedProduct {}
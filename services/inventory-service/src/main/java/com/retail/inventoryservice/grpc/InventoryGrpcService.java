@@ -2,13 +2,22 @@ package com.retail.inventoryservice.grpc;
 
 import com.retail.inventoryservice.dto.StockCheckResponse;
 import com.retail.inventoryservice.proto.*;
+import com.retail.inventoryservice.service.HotSkuReservationQueue;
+import com.retail.inventoryservice.service.InsufficientStockException;
 import com.retail.inventoryservice.service.InventoryService;
+import com.retail.inventoryservice.service.ReservationLimiter;
+import com.retail.inventoryservice.service.ReservationRejectedException;
 import io.grpc.Context;
+import io.grpc.Metadata;
 import io.grpc.Status;
+import io.grpc.stub.ServerCallStreamObserver;
 import io.grpc.stub.StreamObserver;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 
+import java.util.HashMap;
+import java.util.Map;
+
 /**
  * gRPC server implementation for internal service-to-service calls.
  *
@@ -23,10 +32,24 @@ import org.springframework.stereotype.Service;
 @Service
 public class InventoryGrpcService extends InventoryGrpcGrpc.InventoryGrpcImplBase {
 
+    private static final Metadata.Key<String> RETRY_PUSHBACK_KEY =
+            Metadata.Key.of("grpc-retry-pushback-ms", Metadata.ASCII_STRING_MARSHALLER);
+
+    private static final int MAX_PRODUCTS_PER_CALL = 500;
+
     private final InventoryService inventoryService;
+    private final ReservationLimiter reservationLimiter;
+    private final HotSkuReservationQueue hotSkuReservationQueue;
+    private final StockWatchHub stockWatchHub;
 
-    public InventoryGrpcService(InventoryService inventoryService) {
+    public InventoryGrpcService(InventoryService inventoryService,
+                                ReservationLimiter reservationLimiter,
+                                HotSkuReservationQueue hotSkuReservationQueue,
+                                StockWatchHub stockWatchHub) {
         this.inventoryService = inventoryService;
+        this.reservationLimiter = reservationLimiter;
+        this.hotSkuReservationQueue = hotSkuReservationQueue;
+        this.stockWatchHub = stockWatchHub;
     }
 
     @Override
@@ -77,7 +100,8 @@ public class InventoryGrpcService extends InventoryGrpcGrpc.InventoryGrpcImplBas
             int quantity = request.getQuantity();
             log.debug("gRPC ReserveStock: orderId={}, productId={}, qty={}", orderId, productId, quantity);
 
-            boolean reserved = inventoryService.reserveStock(orderId, productId, quantity);
+            boolean reserved = reservationLimiter.execute(
+                    () -> hotSkuReservationQueue.reserve(orderId, productId, quantity));
 
             ReserveStockResponse response = ReserveStockResponse.newBuilder()
                     .setSuccess(reserved)
@@ -86,6 +110,14 @@ public class InventoryGrpcService extends InventoryGrpcGrpc.InventoryGrpcImplBas
 
             responseObserver.onNext(response);
             responseObserver.onCompleted();
+        } catch (ReservationRejectedException e) {
+            // grpc-retry-pushback-ms is honoured by gRPC client retry policies.
+            Metadata trailers = new Metadata();
+            trailers.put(RETRY_PUSHBACK_KEY, Long.toString(e.getRetryAfter().toMillis()));
+            responseObserver.onError(
+                    Status.RESOURCE_EXHAUSTED
+                            .withDescription(e.getMessage())
+                            .asRuntimeException(trailers));
         } catch (Exception e) {
             log.error("gRPC ReserveStock failed", e);
             responseObserver.onError(
@@ -94,4 +126,141 @@ public class InventoryGrpcService extends InventoryGrpcGrpc.InventoryGrpcImplBas
                             .asRuntimeException());
         }
     }
+
+    @Override
+    public void releaseStock(ReleaseStockRequest request,
+                             StreamObserver<ReleaseStockResponse> responseObserver) {
+        try {
+            long orderId = request.getOrderId();
+            long productId = request.getProductId();
+            int quantity = request.getQuantity();
+            if (quantity < 1) {
+                throw new IllegalArgumentException("Invalid quantity for product " + productId);
+            }
+            log.debug("gRPC ReleaseStock: orderId={}, productId={}, qty={}", orderId, productId, quantity);
+
+            // Not gated by the reservation limiter: releasing frees stock, and a
+            // rejected release would leave it held until someone notices.
+            boolean released = inventoryService.releaseReservation(orderId, productId, quantity);
+
+            responseObserver.onNext(ReleaseStockResponse.newBuilder().setSuccess(released).build());
+            responseObserver.onCompleted();
+        } catch (IllegalArgumentException e) {
+            responseObserver.onError(
+                    Status.INVALID_ARGUMENT
+                            .withDescription(e.getMessage())
+                            .asRuntimeException());
+        } catch (Exception e) {
+            log.error("gRPC ReleaseStock failed", e);
+            responseObserver.onError(
+                    Status.INTERNAL
+                            .withDescription("Internal error")
+                            .asRuntimeException());
+        }
+    }
+
+    @Override
+    public void reserveOrder(ReserveOrderRequest request,
+                             StreamObserver<ReserveOrderResponse> responseObserver) {
+        if (Context.current().isCancelled()) {
+            responseObserver.onError(Status.CANCELLED.withDescription("Client cancelled").asRuntimeException());
+            return;
+        }
+        try {
+            long orderId = request.getOrderId();
+            Map<Long, Integer> quantities = new HashMap<>();
+            for (ReserveLine line : request.getLinesList()) {
+                if (line.getQuantity() < 1) {
+                    throw new IllegalArgumentException("Invalid quantity for product " + line.getProductId());
+                }
+                quantities.merge(line.getProductId(), line.getQuantity(), Integer::sum);
+            }
+            log.debug("gRPC ReserveOrder: orderId={}, lines={}", orderId, quantities.size());
+
+            ReserveOrderResponse response;
+            try {
+                reservationLimiter.execute(() -> {
+                    hotSkuReservationQueue.reserveOrder(orderId, quantities);
+                    return null;
+                });
+                response = ReserveOrderResponse.newBuilder()
+                        .setSuccess(true)
+                        .setMessage("Stock reserved")
+                        .build();
+            } catch (InsufficientStockException e) {
+                response = ReserveOrderResponse.newBuilder()
+                        .setSuccess(false)
+                        .setMessage("Insufficient stock")
+                        .setFailedProductId(e.getProductId())
+                        .build();
+            }
+
+            responseObserver.onNext(response);
+            responseObserver.onCompleted();
+        } catch (ReservationRejectedException e) {
+            Metadata trailers = new Metadata();
+            trailers.put(RETRY_PUSHBACK_KEY, Long.toString(e.getRetryAfter().toMillis()));
+            responseObserver.onError(
+                    Status.RESOURCE_EXHAUSTED
+                            .withDescription(e.getMessage())
+                            .asRuntimeException(trailers));
+        } catch (IllegalArgumentException e) {
+            responseObserver.onError(
+                    Status.INVALID_ARGUMENT
+                            .withDescription(e.getMessage())
+                            .asRuntimeException());
+        } catch (Exception e) {
+            log.error("gRPC ReserveOrder failed", e);
+            responseObserver.onError(
+                    Status.INTERNAL
+                            .withDescription("Internal error")
+                            .asRuntimeException());
+        }
+    }
+
+    @Override
+    public void getProducts(GetProductsRequest request,
+                            StreamObserver<GetProductsResponse> responseObserver) {
+        if (Context.current().isCancelled()) {
+            responseObserver.onError(Status.CANCELLED.withDescription("Client cancelled").asRuntimeException());
+            return;
+        }
+        if (request.getProductIdsCount() > MAX_PRODUCTS_PER_CALL) {
+            responseObserver.onError(
+                    Status.INVALID_ARGUMENT
+                            .withDescription("At most " + MAX_PRODUCTS_PER_CALL + " product ids per call")
+                            .asRuntimeException());
+            return;
+        }
+        try {
+            log.debug("gRPC GetProducts: ids={}", request.getProductIdsCount());
+            GetProductsResponse.Builder response = GetProductsResponse.newBuilder();
+            inventoryService.getProducts(request.getProductIdsList()).values().forEach(product ->
+                    response.addProducts(ProductInfo.newBuilder()
+                            .setProductId(product.id())
+                            .setName(product.name())
+                            .setPrice(product.price().toPlainString())
+                            .setAvailableStock(product.availableStock())
+                            .setVersion(product.version() != null ? product.version() : 0)));
+
+            responseObserver.onNext(response.build());
+            responseObserver.onCompleted();
+        } catch (Exception e) {
+            log.error("gRPC GetProducts failed", e);
+            responseObserver.onError(
+                    Status.INTERNAL
+                            .withDescription("Internal error")
+                            .asRuntimeException());
+        }
+    }
+
+    /**
+     * Bidirectional: the request stream adds/removes watched products, the response
+     * stream carries a snapshot per product and then coalesced deltas (see StockWatchHub).
+     */
+    @Override
+    public StreamObserver<WatchStockRequest> watchStock(StreamObserver<StockUpdate> responseObserver) {
+        log.debug("gRPC WatchStock stream opened");
+        return stockWatchHub.subscribe((ServerCallStreamObserver<StockUpdate>) responseObserver);
+    }
 }
@@ -0,0 +1,319 @@
+package com.retail.inventoryservice.grpc;
+
+import com.retail.inventoryservice.proto.StockUpdate;
+import com.retail.inventoryservice.proto.WatchStockRequest;
+import com.retail.inventoryservice.service.StockAvailabilityIndex;
+import io.grpc.Status;
+import io.grpc.stub.ServerCallStreamObserver;
+import io.grpc.stub.StreamObserver;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Fan-out for WatchStock streams, fed by StockAvailabilityIndex change callbacks.
+ *
+ * A change only marks the product dirty on each subscription watching it; values are
+ * read from the index when the subscription flushes. That gives two bounds:
+ *   - rate: a subscription flushes at most once per min-interval, so a SKU changing
+ *     1000 times a second costs each watcher one update per interval
+ *   - memory: a subscription holds at most one pending entry per watched product
+ *
+ * Flushes only write while the call is ready (gRPC flow control); a slow reader keeps
+ * its dirty set and is flushed again from the onReady handler once the transport
+ * drains. Updates whose value equals the last one sent are dropped.
+ *
+ * Marking dirty is lock-free, so the index's NOTIFY and afterCommit threads never wait
+ * on a stream, and flushes read only the in-memory index.
+ */
+@Slf4j
+@Component
+public class StockWatchHub implements StockAvailabilityIndex.ChangeListener {
+
+    private final StockAvailabilityIndex availabilityIndex;
+    private final long minIntervalNanos;
+    private final int maxProductsPerStream;
+
+    private final Map<Long, Set<Subscription>> subscribersByProduct = new ConcurrentHashMap<>();
+    private final Set<Subscription> subscriptions = ConcurrentHashMap.newKeySet();
+    private final ScheduledExecutorService flusher = Executors.newSingleThreadScheduledExecutor(
+            Thread.ofPlatform().name("stock-watch-flusher").daemon().factory());
+
+    private final Counter updatesSentCounter;
+    private final Counter changesCoalescedCounter;
+
+    public StockWatchHub(StockAvailabilityIndex availabilityIndex,
+                         @Value("${inventory.watch.min-interval:100ms}") Duration minInterval,
+                         @Value("${inventory.watch.max-products-per-stream:1000}") int maxProductsPerStream,
+                         MeterRegistry meterRegistry) {
+        this.availabilityIndex = availabilityIndex;
+        this.minIntervalNanos = minInterval.toNanos();
+        this.maxProductsPerStream = maxProductsPerStream;
+
+        this.updatesSentCounter = Counter.builder("inventory.watch.updates.sent.total")
+                .description("Stock updates written to WatchStock streams")
+                .register(meterRegistry);
+        this.changesCoalescedCounter = Counter.builder("inventory.watch.changes.coalesced.total")
+                .description("Availability changes folded into an update that was already pending")
+                .register(meterRegistry);
+        Gauge.builder("inventory.watch.streams", subscriptions, Set::size)
+                .description("Open WatchStock streams")
+                .register(meterRegistry);
+
+        availabilityIndex.addChangeListener(this);
+    }
+
+    StreamObserver<WatchStockRequest> subscribe(ServerCallStreamObserver<StockUpdate> responseObserver) {
+        if (!availabilityIndex.isEnabled()) {
+            responseObserver.onError(Status.FAILED_PRECONDITION
+                    .withDescription("Stock availability index is disabled")
+                    .asRuntimeException());
+            return new NoOpRequestObserver();
+        }
+        Subscription subscription = new Subscription(responseObserver);
+        subscriptions.add(subscription);
+        responseObserver.setOnCancelHandler(subscription::close);
+        responseObserver.setOnReadyHandler(subscription::scheduleFlush);
+        return subscription;
+    }
+
+    @Override
+    public void onChange(long productId) {
+        Set<Subscription> watchers = subscribersByProduct.get(productId);
+        if (watchers != null) {
+            for (Subscription subscription : watchers) {
+                subscription.markDirty(productId);
+            }
+        }
+    }
+
+    @Override
+    public void onReload() {
+        for (Subscription subscription : subscriptions) {
+            subscription.markAllDirty();
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        for (Subscription subscription : subscriptions) {
+            subscription.complete();
+        }
+        flusher.shutdownNow();
+    }
+
+    private final class Subscription implements StreamObserver<WatchStockRequest> {
+
+        private final ServerCallStreamObserver<StockUpdate> observer;
+
+        // Read and written without the monitor: index change callbacks only add to dirty
+        // and claim flushScheduled, so they never wait behind a flush.
+        private final Set<Long> watched = ConcurrentHashMap.newKeySet();
+        private final Set<Long> dirty = ConcurrentHashMap.newKeySet();
+        private final AtomicBoolean flushScheduled = new AtomicBoolean();
+        private volatile long lastFlushNanos = System.nanoTime() - minIntervalNanos;
+        private volatile boolean closed;
+
+        // Guarded by "this", as is every call on observer (gRPC observers must not be
+        // called concurrently).
+        private final Map<Long, Integer> lastSent = new HashMap<>();
+
+        Subscription(ServerCallStreamObserver<StockUpdate> observer) {
+            this.observer = observer;
+        }
+
+        @Override
+        public void onNext(WatchStockRequest request) {
+            synchronized (this) {
+                if (closed) {
+                    return;
+                }
+                for (long productId : request.getUnwatchList()) {
+                    if (watched.remove(productId)) {
+                        unregister(productId);
+                        dirty.remove(productId);
+                        lastSent.remove(productId);
+                    }
+                }
+                if (watched.size() + request.getWatchCount() > maxProductsPerStream
+                        && !fitsAfterDedup(request)) {
+                    failLocked(Status.RESOURCE_EXHAUSTED.withDescription(
+                            "WatchStock is limited to " + maxProductsPerStream + " products per stream"));
+                    return;
+                }
+                for (long productId : request.getWatchList()) {
+                    if (watched.add(productId)) {
+                        register(productId);
+                        dirty.add(productId);
+                    }
+                }
+            }
+            scheduleFlush();
+        }
+
+        @Override
+        public void onError(Throwable t) {
+            close();
+        }
+
+        @Override
+        public void onCompleted() {
+            complete();
+        }
+
+        void markDirty(long productId) {
+            if (closed || !watched.contains(productId)) {
+                return;
+            }
+            if (!dirty.add(productId)) {
+                changesCoalescedCounter.increment();
+            }
+            scheduleFlush();
+        }
+
+        void markAllDirty() {
+            if (closed) {
+                return;
+            }
+            dirty.addAll(watched);
+            scheduleFlush();
+        }
+
+        void scheduleFlush() {
+            if (closed || dirty.isEmpty() || !flushScheduled.compareAndSet(false, true)) {
+                return;
+            }
+            long delay = Math.max(0, lastFlushNanos + minIntervalNanos - System.nanoTime());
+            flusher.schedule(this::flush, delay, TimeUnit.NANOSECONDS);
+        }
+
+        /**
+         * Values come from the index only, never the database, so one stream cannot hold
+         * up the shared flusher thread. While the index is not live the dirty products
+         * wait; onReload marks everything dirty again once it is.
+         */
+        private void flush() {
+            synchronized (this) {
+                flushScheduled.set(false);
+                if (closed || !availabilityIndex.isLive()) {
+                    return;
+                }
+                lastFlushNanos = System.nanoTime();
+                try {
+                    Iterator<Long> pending = dirty.iterator();
+                    while (pending.hasNext() && observer.isReady()) {
+                        long productId = pending.next();
+                        pending.remove();
+                        send(productId);
+                    }
+                } catch (RuntimeException e) {
+                    log.warn("WatchStock flush failed: {}", e.getMessage());
+                    failLocked(Status.INTERNAL.withDescription("Internal error"));
+                    return;
+                }
+                // Not ready with updates left: the onReady handler reschedules.
+                if (!observer.isReady()) {
+                    return;
+                }
+            }
+            scheduleFlush();
+        }
+
+        private void send(long productId) {
+            // Live and absent: no inventory row (yet). Its insert arrives as a change.
+            int available = availabilityIndex.current(productId).orElse(0);
+            Integer previous = lastSent.put(productId, available);
+            if (previous != null && previous == available) {
+                return;
+            }
+            observer.onNext(StockUpdate.newBuilder()
+                    .setProductId(productId)
+                    .setAvailableStock(available)
+                    .setInStock(available > 0)
+                    .setSnapshot(previous == null)
+                    .build());
+            updatesSentCounter.increment();
+        }
+
+        private boolean fitsAfterDedup(WatchStockRequest request) {
+            Set<Long> combined = new HashSet<>(watched);
+            combined.addAll(request.getWatchList());
+            return combined.size() <= maxProductsPerStream;
+        }
+
+        synchronized void complete() {
+            if (!closed) {
+                closeLocked();
+                observer.onCompleted();
+            }
+        }
+
+        synchronized void close() {
+            closeLocked();
+        }
+
+        private void failLocked(Status status) {
+            closeLocked();
+            observer.onError(status.asRuntimeException());
+        }
+
+        private void closeLocked() {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            for (long productId : watched) {
+                unregister(productId);
+            }
+            watched.clear();
+            dirty.clear();
+            subscriptions.remove(this);
+        }
+
+        private void register(long productId) {
+            subscribersByProduct.compute(productId, (id, watchers) -> {
+                Set<Subscription> updated = watchers != null ? watchers : ConcurrentHashMap.newKeySet();
+                updated.add(this);
+                return updated;
+            });
+        }
+
+        private void unregister(long productId) {
+            subscribersByProduct.computeIfPresent(productId, (id, watchers) -> {
+                watchers.remove(this);
+                return watchers.isEmpty() ? null : watchers;
+            });
+        }
+    }
+
+    private static final class NoOpRequestObserver implements StreamObserver<WatchStockRequest> {
+
+        @Override
+        public void onNext(WatchStockRequest request) {
+        }
+
+        @Override
+        public void onError(Throwable t) {
+        }
+
+        @Override
+        public void onCompleted() {
+        }
+    }
+}
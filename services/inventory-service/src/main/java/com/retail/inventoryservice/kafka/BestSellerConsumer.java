@@ -0,0 +1,60 @@
+package com.retail.inventoryservice.kafka;
+
+import com.retail.inventoryservice.kafka.event.PaymentCompletedEvent;
+import com.retail.inventoryservice.service.BestSellerTracker;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.common.TopicPartition;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.annotation.PartitionOffset;
+import org.springframework.kafka.listener.ConsumerSeekAware;
+import org.springframework.kafka.support.KafkaHeaders;
+import org.springframework.messaging.handler.annotation.Header;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+/**
+ * Feeds payment-completed events into BestSellerTracker.
+ *
+ * The "inventory-service" group splits partitions between replicas, so each replica's
+ * InventoryEventConsumer only sees part of the sales. This listener assigns every
+ * partition manually instead and, on start, seeks back one retention period by
+ * timestamp, so the in-memory ranking is complete and rebuilt after a restart.
+ * Sales are bucketed by the record timestamp, which keeps that replay in the right
+ * hours. No retry topics: a ranking that misses a malformed record is still a ranking.
+ */
+@Slf4j
+@Component
+public class BestSellerConsumer implements ConsumerSeekAware {
+
+    private final BestSellerTracker bestSellerTracker;
+
+    public BestSellerConsumer(BestSellerTracker bestSellerTracker) {
+        this.bestSellerTracker = bestSellerTracker;
+    }
+
+    @KafkaListener(
+            groupId = "inventory-service-bestsellers",
+            topicPartitions = @org.springframework.kafka.annotation.TopicPartition(
+                    topic = "payment-completed",
+                    partitionOffsets = @PartitionOffset(partition = "*", initialOffset = "0")),
+            concurrency = "1")
+    public void handle(PaymentCompletedEvent event, @Header(KafkaHeaders.RECEIVED_TIMESTAMP) long timestamp) {
+        if (event == null || event.items() == null) {
+            return;
+        }
+        for (PaymentCompletedEvent.ItemDetail item : event.items()) {
+            if (item.productId() != null) {
+                bestSellerTracker.recordSale(item.productId(), item.quantity(), timestamp);
+            }
+        }
+    }
+
+    @Override
+    public void onPartitionsAssigned(Map<TopicPartition, Long> assignments, ConsumerSeekCallback callback) {
+        long since = System.currentTimeMillis() - bestSellerTracker.retention().toMillis();
+        callback.seekToTimestamp(assignments.keySet(), since);
+        log.info("Best-seller replay: {} partitions of payment-completed from {} ago",
+                assignments.size(), bestSellerTracker.retention());
+    }
+}
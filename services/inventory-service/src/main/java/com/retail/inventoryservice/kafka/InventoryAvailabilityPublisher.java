@@ -0,0 +1,126 @@
+package com.retail.inventoryservice.kafka;
+
+import com.retail.inventoryservice.kafka.event.InventoryAvailabilityEvent;
+import com.retail.inventoryservice.service.StockAvailabilityIndex;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Mirrors StockAvailabilityIndex onto the compacted "inventory-availability" topic,
+ * which order-service replays into its local stock view.
+ *
+ * Only the leader replica publishes. Because the index applies every change exactly
+ * once (local write or NOTIFY, whichever lands first), the leader sees all changes
+ * from every replica and bulk ingest. Changes are coalesced per product and flushed
+ * every flush-interval, so a hot SKU costs one record per interval. On gaining
+ * leadership, and after an index reload, the full table is re-published to cover
+ * anything a previous leader did not get to send.
+ */
+@Slf4j
+@Component
+public class InventoryAvailabilityPublisher implements StockAvailabilityIndex.ChangeListener {
+
+    private static final String TOPIC_INVENTORY_AVAILABILITY = "inventory-availability";
+
+    private final KafkaTemplate<String, Object> kafkaTemplate;
+    private final StockAvailabilityIndex availabilityIndex;
+    private final Set<Long> dirty = ConcurrentHashMap.newKeySet();
+    private final ScheduledExecutorService flusher = Executors.newSingleThreadScheduledExecutor(
+            Thread.ofPlatform().name("inventory-availability-publisher").daemon().factory());
+
+    private final Counter publishedCounter;
+    private final Counter publishFailedCounter;
+
+    public InventoryAvailabilityPublisher(KafkaTemplate<String, Object> kafkaTemplate,
+                                          StockAvailabilityIndex availabilityIndex,
+                                          @Value("${inventory.availability-topic.flush-interval:200ms}") Duration flushInterval,
+                                          MeterRegistry meterRegistry) {
+        this.kafkaTemplate = kafkaTemplate;
+        this.availabilityIndex = availabilityIndex;
+
+        this.publishedCounter = Counter.builder("inventory.availability.published.total")
+                .description("Records published to the inventory-availability topic")
+                .register(meterRegistry);
+        this.publishFailedCounter = Counter.builder("inventory.availability.publish.failed.total")
+                .description("Records that failed to publish to the inventory-availability topic")
+                .register(meterRegistry);
+
+        availabilityIndex.addChangeListener(this);
+        long intervalMs = flushInterval.toMillis();
+        flusher.scheduleWithFixedDelay(this::flush, intervalMs, intervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void onChange(long productId) {
+        if (availabilityIndex.isLeader()) {
+            dirty.add(productId);
+        }
+    }
+
+    @Override
+    public void onReload() {
+        if (availabilityIndex.isLeader()) {
+            flusher.execute(this::publishAll);
+        }
+    }
+
+    @Override
+    public void onLeadershipAcquired() {
+        flusher.execute(this::publishAll);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        flusher.shutdown();
+    }
+
+    private void flush() {
+        try {
+            Iterator<Long> pending = dirty.iterator();
+            while (pending.hasNext()) {
+                long productId = pending.next();
+                pending.remove();
+                availabilityIndex.peek(productId).ifPresent(this::publish);
+            }
+        } catch (RuntimeException e) {
+            // Keep the scheduled task alive; the next change or re-publish heals the topic.
+            log.warn("inventory-availability flush failed: {}", e.getMessage());
+        }
+    }
+
+    private void publishAll() {
+        dirty.clear();
+        List<StockAvailabilityIndex.Entry> entries = availabilityIndex.entries();
+        entries.forEach(this::publish);
+        log.info("Re-published {} products to {}", entries.size(), TOPIC_INVENTORY_AVAILABILITY);
+    }
+
+    private void publish(StockAvailabilityIndex.Entry entry) {
+        InventoryAvailabilityEvent event = new InventoryAvailabilityEvent(
+                entry.productId(), entry.available(), entry.changeSeq());
+        kafkaTemplate.send(TOPIC_INVENTORY_AVAILABILITY, String.valueOf(entry.productId()), event)
+                .whenComplete((result, throwable) -> {
+                    if (throwable != null) {
+                        publishFailedCounter.increment();
+                        log.warn("Failed to publish {}: productId={}: {}",
+                                TOPIC_INVENTORY_AVAILABILITY, entry.productId(), throwable.getMessage());
+                    } else {
+                        publishedCounter.increment();
+                    }
+                });
+    }
+}
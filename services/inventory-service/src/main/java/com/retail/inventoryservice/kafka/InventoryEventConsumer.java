@@ -57,7 +57,7 @@ public class InventoryEventConsumer {
 
         try {
             for (PaymentCompletedEvent.ItemDetail item : event.items()) {
-                inventoryService.confirmDeduction(item.productId(), item.quantity());
+                inventoryService.confirmDeduction(event.orderId(), item.productId(), item.quantity());
                 log.debug("Confirmed deduction: orderId={}, productId={}, qty={}",
                         event.orderId(), item.productId(), item.quantity());
             }
@@ -82,7 +82,7 @@ public class InventoryEventConsumer {
 
         try {
             for (PaymentFailedEvent.ItemDetail item : event.items()) {
-                inventoryService.releaseReservation(item.productId(), item.quantity());
+                inventoryService.releaseReservation(event.orderId(), item.productId(), item.quantity());
                 log.debug("Released reservation: orderId={}, productId={}, qty={}",
                         event.orderId(), item.productId(), item.quantity());
             }
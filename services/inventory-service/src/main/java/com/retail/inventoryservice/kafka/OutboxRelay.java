@@ -0,0 +1,320 @@
+package com.retail.inventoryservice.kafka;
+
+import com.retail.inventoryservice.service.AdvisoryLocks;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.common.errors.RetriableException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+import tools.jackson.databind.ObjectMapper;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Publishes outbox rows to Kafka, lowest id first, batch-size rows per pass.
+ *
+ * No transaction (and no pool connection) is held while waiting for Kafka. A pass:
+ *   1. leases the next rows in one short transaction (leased_until),
+ *   2. sends them with nothing open and waits up to send-timeout for the acks,
+ *   3. in a second short transaction deletes the acked rows and records the failure
+ *      (attempts, last_error) on the rest, which frees them for the next pass.
+ *
+ * send-timeout must cover the producer's delivery.timeout.ms plus linger.ms, so every
+ * send has been acked or given up by the producer before its row is freed; otherwise
+ * a slow broker would get a new copy of each row every pass while the producer is still
+ * retrying the old ones. A send that has somehow not settled by then keeps its lease
+ * (lease-duration is longer still) instead of being freed.
+ *
+ * Leasing is serialized by an advisory try-lock and skipped while another lease is
+ * live, so one batch is in flight across all replicas. Ids come from a sequence, so
+ * id order is insert order, not necessarily commit order; a row retried after a
+ * failed send also goes out after rows sent in the meantime. A lease left by a replica
+ * that died mid-pass expires after lease-duration and its rows are sent again:
+ * delivery is at-least-once and consumers stay idempotent.
+ *
+ * A failed send counts as an attempt when the row itself is the likely cause: a
+ * non-retriable error (unknown event_type, payload that no longer deserializes,
+ * record the broker rejects) or a pass in which other rows were acked. A broker
+ * outage fails every row without using up their attempts. After max-attempts the row
+ * is parked (parked_at set) and skipped by later passes, so it cannot hold up the
+ * rows behind it; clearing parked_at and attempts puts it back in the queue.
+ */
+@Slf4j
+@Component
+public class OutboxRelay {
+
+    private static final String TRY_RELAY_LOCK_SQL =
+            "SELECT pg_try_advisory_xact_lock(" + AdvisoryLocks.NAMESPACE + ", " + AdvisoryLocks.OUTBOX_RELAY + ")";
+    private static final String LEASE_SQL = """
+            UPDATE outbox
+            SET leased_until = now() + make_interval(secs => ?)
+            WHERE id IN (SELECT id FROM outbox
+                         WHERE parked_at IS NULL
+                         ORDER BY id
+                         LIMIT ?)
+              AND NOT EXISTS (SELECT 1 FROM outbox WHERE leased_until > now())
+            RETURNING id, topic, event_key, event_type, payload::text AS payload, attempts, created_at
+            """;
+    private static final String DELETE_SQL = "DELETE FROM outbox WHERE id = ANY (?)";
+    private static final String FAILED_SQL = """
+            UPDATE outbox
+            SET attempts     = attempts + ?,
+                last_error   = ?,
+                leased_until = NULL,
+                parked_at    = CASE WHEN attempts + ? >= ? THEN now() END
+            WHERE id = ?
+            """;
+    private static final int MAX_ERROR_LENGTH = 2000;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final KafkaTemplate<String, Object> kafkaTemplate;
+    private final ObjectMapper objectMapper;
+    private final int batchSize;
+    private final Duration sendTimeout;
+    private final Duration leaseDuration;
+    private final int maxAttempts;
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(
+            Thread.ofPlatform().name("outbox-relay").daemon().factory());
+
+    private final Counter publishedCounter;
+    private final Counter failedSendCounter;
+    private final Counter parkedCounter;
+    private final DistributionSummary batchSizeSummary;
+    private final Timer lagTimer;
+
+    public OutboxRelay(JdbcTemplate jdbcTemplate,
+                       TransactionTemplate transactionTemplate,
+                       KafkaTemplate<String, Object> kafkaTemplate,
+                       ObjectMapper objectMapper,
+                       @Value("${outbox.relay.interval:100ms}") Duration interval,
+                       @Value("${outbox.relay.batch-size:200}") int batchSize,
+                       @Value("${outbox.relay.send-timeout:10s}") Duration sendTimeout,
+                       @Value("${outbox.relay.lease-duration:60s}") Duration leaseDuration,
+                       @Value("${outbox.relay.max-attempts:10}") int maxAttempts,
+                       MeterRegistry meterRegistry) {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("outbox.relay.batch-size must be positive: " + batchSize);
+        }
+        Duration deliveryWindow = deliveryWindow(kafkaTemplate.getProducerFactory().getConfigurationProperties());
+        if (sendTimeout.compareTo(deliveryWindow) < 0) {
+            throw new IllegalArgumentException("outbox.relay.send-timeout (" + sendTimeout
+                    + ") must cover the producer's delivery.timeout.ms + linger.ms (" + deliveryWindow + ")");
+        }
+        if (leaseDuration.compareTo(sendTimeout) <= 0) {
+            throw new IllegalArgumentException("outbox.relay.lease-duration must be longer than send-timeout");
+        }
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.kafkaTemplate = kafkaTemplate;
+        this.objectMapper = objectMapper;
+        this.batchSize = batchSize;
+        this.sendTimeout = sendTimeout;
+        this.leaseDuration = leaseDuration;
+        this.maxAttempts = maxAttempts;
+
+        this.publishedCounter = Counter.builder("outbox.relay.published.total")
+                .description("Outbox events published to Kafka")
+                .register(meterRegistry);
+        this.failedSendCounter = Counter.builder("outbox.relay.failures.total")
+                .description("Outbox events whose send failed or was not acked within send-timeout")
+                .register(meterRegistry);
+        this.parkedCounter = Counter.builder("outbox.relay.parked.total")
+                .description("Outbox events parked after max-attempts failed sends")
+                .register(meterRegistry);
+        this.batchSizeSummary = DistributionSummary.builder("outbox.relay.batch.size")
+                .description("Events published per outbox relay pass")
+                .register(meterRegistry);
+        this.lagTimer = Timer.builder("outbox.relay.lag")
+                .description("Time from outbox insert to Kafka ack, oldest event of each pass")
+                .register(meterRegistry);
+
+        long intervalMs = interval.toMillis();
+        scheduler.scheduleWithFixedDelay(this::relay, intervalMs, intervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        scheduler.shutdownNow();
+    }
+
+    private void relay() {
+        try {
+            while (relayBatch() == batchSize) {
+                // Backlog and every send acked: next batch right away.
+            }
+        } catch (RuntimeException e) {
+            log.error("Outbox relay pass failed, rows stay queued: {}", e.getMessage());
+        }
+    }
+
+    private int relayBatch() {
+        List<OutboxRow> rows = transactionTemplate.execute(status -> {
+            if (!Boolean.TRUE.equals(jdbcTemplate.queryForObject(TRY_RELAY_LOCK_SQL, Boolean.class))) {
+                return List.<OutboxRow>of();
+            }
+            return jdbcTemplate.query(LEASE_SQL, (rs, n) -> new OutboxRow(
+                    rs.getLong("id"),
+                    rs.getString("topic"),
+                    rs.getString("event_key"),
+                    rs.getString("event_type"),
+                    rs.getString("payload"),
+                    rs.getInt("attempts"),
+                    rs.getTimestamp("created_at")), leaseDuration.toSeconds(), batchSize);
+        });
+        if (rows == null || rows.isEmpty()) {
+            return 0;
+        }
+        rows = rows.stream().sorted(Comparator.comparingLong(OutboxRow::id)).toList();
+
+        List<CompletableFuture<?>> sends = new ArrayList<>(rows.size());
+        for (OutboxRow row : rows) {
+            try {
+                sends.add(kafkaTemplate.send(row.topic(), row.key(), toEvent(row)));
+            } catch (RuntimeException e) {
+                sends.add(CompletableFuture.failedFuture(e));
+            }
+        }
+        awaitAcks(sends);
+
+        List<Long> acked = new ArrayList<>(rows.size());
+        List<OutboxRow> failed = new ArrayList<>();
+        List<Throwable> errors = new ArrayList<>();
+        int unsettled = 0;
+        OutboxRow oldestAcked = null;
+        for (int i = 0; i < rows.size(); i++) {
+            CompletableFuture<?> send = sends.get(i);
+            switch (send.state()) {
+                case SUCCESS -> {
+                    acked.add(rows.get(i).id());
+                    if (oldestAcked == null) {
+                        oldestAcked = rows.get(i);
+                    }
+                }
+                case FAILED, CANCELLED -> {
+                    failed.add(rows.get(i));
+                    errors.add(send.state() == Future.State.FAILED
+                            ? send.exceptionNow()
+                            : new TimeoutException("Send cancelled"));
+                }
+                // Still with the producer: the row stays leased until the lease expires.
+                case RUNNING -> unsettled++;
+            }
+        }
+        settle(acked, failed, errors);
+        if (unsettled > 0) {
+            failedSendCounter.increment(unsettled);
+            log.warn("Outbox relay: {} events not settled within {}, left leased", unsettled, sendTimeout);
+        }
+
+        if (oldestAcked != null) {
+            publishedCounter.increment(acked.size());
+            batchSizeSummary.record(acked.size());
+            lagTimer.record(Duration.ofMillis(System.currentTimeMillis() - oldestAcked.createdAt().getTime()));
+        }
+        return failed.isEmpty() && unsettled == 0 ? acked.size() : 0;
+    }
+
+    private void settle(List<Long> acked, List<OutboxRow> failed, List<Throwable> errors) {
+        boolean anyAcked = !acked.isEmpty();
+        transactionTemplate.executeWithoutResult(status -> {
+            if (anyAcked) {
+                Long[] ids = acked.toArray(Long[]::new);
+                jdbcTemplate.update(con -> {
+                    var ps = con.prepareStatement(DELETE_SQL);
+                    ps.setArray(1, con.createArrayOf("bigint", ids));
+                    return ps;
+                });
+            }
+            for (int i = 0; i < failed.size(); i++) {
+                OutboxRow row = failed.get(i);
+                Throwable error = errors.get(i);
+                int attempt = anyAcked || !isRetriable(error) ? 1 : 0;
+                jdbcTemplate.update(FAILED_SQL, attempt, describe(error), attempt, maxAttempts, row.id());
+                if (attempt > 0 && row.attempts() + 1 >= maxAttempts) {
+                    parkedCounter.increment();
+                    log.error("Outbox event parked after {} attempts: id={}, type={}, topic={}, cause: {}",
+                            maxAttempts, row.id(), row.eventType(), row.topic(), describe(error));
+                }
+            }
+        });
+        if (!failed.isEmpty()) {
+            failedSendCounter.increment(failed.size());
+            log.warn("Outbox relay: {} of {} events not acked, first cause: {}",
+                    failed.size(), failed.size() + acked.size(), describe(errors.getFirst()));
+        }
+    }
+
+    private Object toEvent(OutboxRow row) {
+        try {
+            return objectMapper.readValue(row.payload(), Class.forName(row.eventType()));
+        } catch (ClassNotFoundException e) {
+            throw new IllegalStateException("Unknown outbox event type " + row.eventType() + " (id=" + row.id() + ")", e);
+        }
+    }
+
+    private void awaitAcks(List<CompletableFuture<?>> sends) {
+        try {
+            CompletableFuture.allOf(sends.toArray(CompletableFuture[]::new))
+                    .get(sendTimeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            // The lease expires and the rows are sent again.
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted waiting for Kafka acks", e);
+        } catch (ExecutionException | TimeoutException e) {
+            // Settled per send below.
+        }
+    }
+
+    private static Duration deliveryWindow(Map<String, Object> producerConfig) {
+        return Duration.ofMillis(configMillis(producerConfig, ProducerConfig.DELIVERY_TIMEOUT_MS_CONFIG, 120000)
+                + configMillis(producerConfig, ProducerConfig.LINGER_MS_CONFIG, 5));
+    }
+
+    private static long configMillis(Map<String, Object> producerConfig, String name, long kafkaDefault) {
+        Object value = producerConfig.get(name);
+        return value == null ? kafkaDefault : Long.parseLong(value.toString());
+    }
+
+    private static boolean isRetriable(Throwable error) {
+        for (Throwable t = error; t != null; t = t.getCause()) {
+            if (t instanceof RetriableException || t instanceof TimeoutException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String describe(Throwable error) {
+        Throwable root = error;
+        while (root.getCause() != null && root.getCause() != root) {
+            root = root.getCause();
+        }
+        String message = root.getClass().getSimpleName() + ": " + root.getMessage();
+        return message.length() > MAX_ERROR_LENGTH ? message.substring(0, MAX_ERROR_LENGTH) : message;
+    }
+
+    private record OutboxRow(long id, String topic, String key, String eventType, String payload,
+                             int attempts, Timestamp createdAt) {
+    }
+}
@@ -0,0 +1,13 @@
+package com.retail.inventoryservice.kafka.event;
+
+/**
+ * Event published to the compacted "inventory-availability" Kafka topic, keyed by
+ * productId, so the topic always holds the latest availability of every product.
+ * changeSeq orders updates for the same product; availableStock is -1 once the
+ * product's inventory row is gone.
+ */
+public record InventoryAvailabilityEvent(
+        Long productId,
+        int availableStock,
+        long changeSeq
+) {}
@@ -0,0 +1,15 @@
+package com.retail.inventoryservice.kafka.event;
+
+import java.util.List;
+
+/**
+ * Event published to the "inventory-order-reserved" Kafka topic.
+ * One per order reserved through the ReserveOrder RPC, carrying every reserved line
+ * (the per-line "inventory-reserved" event is not sent for those orders).
+ */
+public record OrderInventoryReservedEvent(
+        Long orderId,
+        List<Line> lines
+) {
+    public record Line(Long productId, int quantity) {}
+}
@@ -39,6 +39,14 @@ public interface InventoryRepository extends JpaRepository<Inventory, Long> {
            "WHERE i.productId = :productId AND (i.quantity - i.reserved) >= :amount")
     int reserveStock(@Param("productId") Long productId, @Param("amount") int amount);
 
+    /**
+     * Lock a product's inventory row and read its available stock (quantity - reserved).
+     * Used by the hot SKU writer to decide a whole batch before one reserveStock UPDATE.
+     */
+    @Query(value = "SELECT quantity - reserved FROM inventory WHERE product_id = :productId FOR UPDATE",
+           nativeQuery = true)
+    Optional<Integer> lockAvailableStock(@Param("productId") Long productId);
+
     /**
      * Release reserved stock (when payment fails or order is cancelled).
      */
@@ -0,0 +1,25 @@
+package com.retail.inventoryservice.service;
+
+/**
+ * Postgres advisory lock keys used by this service. All use the two-int form under one
+ * namespace, which never collides with single-bigint locks keyed by product id.
+ */
+public final class AdvisoryLocks {
+
+    public static final int NAMESPACE = 7301;
+
+    /** Session lock held by the availability index's leader replica. */
+    public static final int AVAILABILITY_LEADER = 1;
+
+    /** Shared by every ledger append, exclusive while movements are folded. */
+    public static final int STOCK_LEDGER = 2;
+
+    /** Lets only one replica run a compaction pass at a time. */
+    public static final int LEDGER_COMPACTOR = 3;
+
+    /** Lets only one replica relay the outbox at a time, keeping events in order. */
+    public static final int OUTBOX_RELAY = 4;
+
+    private AdvisoryLocks() {
+    }
+}
@@ -0,0 +1,139 @@
+package com.retail.inventoryservice.service;
+
+import com.retail.inventoryservice.dto.BestSeller;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Units sold per product over a sliding window of whole hours, fed from
+ * payment-completed events (see BestSellerConsumer). ProductAccessTracker answers
+ * "most viewed"; this answers "most sold".
+ *
+ * Each product has a ring of retention-hours slots in an AtomicLongArray. A slot packs
+ * the epoch hour it belongs to (high 24 bits) with that hour's unit count (low 40
+ * bits), so one CAS both adds to the current hour and recycles a slot left over from
+ * an older lap of the ring. No locks and no database access on the write path; reads
+ * ignore slots whose hour is outside the requested window.
+ *
+ * Memory is retention-hours * 8 bytes per product that has sold in this process's
+ * lifetime. Counts are per replica but complete: every replica reads every partition.
+ */
+@Service
+public class BestSellerTracker {
+
+    private static final int COUNT_BITS = 40;
+    private static final long COUNT_MASK = (1L << COUNT_BITS) - 1;
+    private static final long HOUR_MILLIS = Duration.ofHours(1).toMillis();
+    private static final int MAX_RETENTION_HOURS = 168;
+
+    private final int retentionHours;
+    private final Map<Long, AtomicLongArray> rings = new ConcurrentHashMap<>();
+
+    private final Counter unitsRecordedCounter;
+
+    public BestSellerTracker(@Value("${inventory.bestsellers.retention-hours:24}") int retentionHours,
+                             MeterRegistry meterRegistry) {
+        if (retentionHours < 1 || retentionHours > MAX_RETENTION_HOURS) {
+            throw new IllegalArgumentException(
+                    "inventory.bestsellers.retention-hours must be 1.." + MAX_RETENTION_HOURS + ": " + retentionHours);
+        }
+        this.retentionHours = retentionHours;
+
+        this.unitsRecordedCounter = Counter.builder("inventory.bestsellers.units.recorded.total")
+                .description("Sold units counted into the best-seller ranking")
+                .register(meterRegistry);
+        Gauge.builder("inventory.bestsellers.products", rings, Map::size)
+                .description("Products with a best-seller sales ring")
+                .register(meterRegistry);
+    }
+
+    public Duration retention() {
+        return Duration.ofHours(retentionHours);
+    }
+
+    /**
+     * Count a sale in the hour of its timestamp. Sales older than the retention are
+     * dropped; timestamps ahead of the local clock count in the current hour.
+     */
+    public void recordSale(long productId, int quantity, long timestampMillis) {
+        if (quantity <= 0) {
+            return;
+        }
+        long nowHour = currentHour();
+        long hour = Math.min(timestampMillis / HOUR_MILLIS, nowHour);
+        if (hour <= nowHour - retentionHours) {
+            return;
+        }
+        AtomicLongArray ring = rings.computeIfAbsent(productId, id -> new AtomicLongArray(retentionHours));
+        int slot = (int) (hour % retentionHours);
+        while (true) {
+            long current = ring.get(slot);
+            long slotHour = current >>> COUNT_BITS;
+            long next;
+            if (slotHour == hour) {
+                next = current + quantity;
+            } else if (slotHour < hour) {
+                next = (hour << COUNT_BITS) | quantity;
+            } else {
+                return;
+            }
+            if (ring.compareAndSet(slot, current, next)) {
+                break;
+            }
+        }
+        unitsRecordedCounter.increment(quantity);
+    }
+
+    /**
+     * Top sellers over the last windowHours hours (the current hour included), best first.
+     */
+    public List<BestSeller> topSellers(int windowHours, int limit) {
+        if (windowHours < 1 || windowHours > retentionHours) {
+            throw new IllegalArgumentException("window must be between 1h and " + retentionHours + "h");
+        }
+        long nowHour = currentHour();
+        long oldestHour = nowHour - windowHours + 1;
+        PriorityQueue<BestSeller> top = new PriorityQueue<>(limit + 1, Comparator.comparingLong(BestSeller::unitsSold));
+        rings.forEach((productId, ring) -> {
+            long units = 0;
+            for (int i = 0; i < ring.length(); i++) {
+                long value = ring.get(i);
+                long slotHour = value >>> COUNT_BITS;
+                if (slotHour >= oldestHour && slotHour <= nowHour) {
+                    units += value & COUNT_MASK;
+                }
+            }
+            if (units > 0) {
+                top.offer(new BestSeller(productId, units));
+                if (top.size() > limit) {
+                    top.poll();
+                }
+            }
+        });
+        List<BestSeller> result = new ArrayList<>(top);
+        result.sort(Comparator.comparingLong(BestSeller::unitsSold).reversed());
+        return result;
+    }
+
+    public List<Long> topProductIds(int windowHours, int limit) {
+        return topSellers(Math.min(windowHours, retentionHours), limit).stream()
+                .map(BestSeller::productId)
+                .toList();
+    }
+
+    private static long currentHour() {
+        return System.currentTimeMillis() / HOUR_MILLIS;
+    }
+}
@@ -0,0 +1,128 @@
+package com.retail.inventoryservice.service;
+
+import com.retail.inventoryservice.dto.CatalogChange;
+import com.retail.inventoryservice.dto.CatalogChangesResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Catalog delta sync: products whose catalog row or stock row advanced past a
+ * watermark (the catalog_change_seq stamped by the V6 trigger).
+ *
+ * Each product appears once per page with its current state, ordered by its
+ * newest change. The returned watermark is the last change_seq on the page, so
+ * callers page forward by feeding it back as "since"; cost is proportional to
+ * churn, not catalog size.
+ *
+ * Sequence values are assigned when a row is written, not when its transaction
+ * commits, so a slower transaction can still commit a value below one already
+ * served. Every change is served as soon as it is visible, but the watermark is
+ * capped at a commit-safe horizon: the sequence value read before a snapshot
+ * whose in-progress transactions have all finished since (V14 makes writers take
+ * their xid before their change_seq). Rows above the horizon come again on the
+ * next call; the consumer sees them twice rather than never. While a transaction
+ * stays open past horizon-wait the last horizon is reused, so the watermark
+ * stalls but nothing is skipped.
+ */
+@Service
+public class CatalogChangeService {
+
+    private static final int MAX_LIMIT = 5000;
+    private static final long POLL_INTERVAL_MS = 5;
+
+    private static final String SEQUENCE_VALUE_SQL = "SELECT last_value FROM catalog_change_seq";
+    private static final String SNAPSHOT_XMAX_SQL = "SELECT pg_snapshot_xmax(pg_current_snapshot())::text::bigint";
+    private static final String SNAPSHOT_XMIN_SQL = "SELECT pg_snapshot_xmin(pg_current_snapshot())::text::bigint";
+
+    private static final String CHANGES_SQL = """
+            WITH changed AS (
+                SELECT id AS product_id, change_seq FROM products
+                WHERE change_seq > ?
+                UNION ALL
+                SELECT product_id, change_seq FROM inventory
+                WHERE change_seq > ?
+            ),
+            page AS (
+                SELECT product_id, max(change_seq) AS seq
+                FROM changed
+                GROUP BY product_id
+                ORDER BY seq
+                LIMIT ?
+            )
+            SELECT p.id, p.sku, p.name, p.description, p.price, p.category, p.image_url, p.active,
+                   COALESCE(i.quantity - i.reserved, 0) AS available, page.seq
+            FROM page
+            JOIN products p ON p.id = page.product_id
+            LEFT JOIN inventory i ON i.product_id = p.id
+            ORDER BY page.seq
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final Duration horizonWait;
+    private final AtomicLong lastHorizon = new AtomicLong();
+
+    public CatalogChangeService(JdbcTemplate jdbcTemplate,
+                                @Value("${catalog.changes.horizon-wait:2s}") Duration horizonWait) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.horizonWait = horizonWait;
+    }
+
+    /**
+     * Not one transaction: the horizon must be read before the rows, and waiting for
+     * it should not hold a connection.
+     */
+    public CatalogChangesResponse getChangesSince(long since, int limit) {
+        int pageSize = Math.min(limit, MAX_LIMIT);
+        long horizon = horizon();
+        List<CatalogChange> rows = jdbcTemplate.query(CHANGES_SQL, (rs, rowNum) -> new CatalogChange(
+                        rs.getLong("id"),
+                        rs.getString("sku"),
+                        rs.getString("name"),
+                        rs.getString("description"),
+                        rs.getBigDecimal("price"),
+                        rs.getString("category"),
+                        rs.getString("image_url"),
+                        rs.getBoolean("active"),
+                        rs.getInt("available"),
+                        rs.getLong("seq")),
+                since, since, pageSize + 1);
+
+        boolean hasMore = rows.size() > pageSize;
+        List<CatalogChange> page = hasMore ? rows.subList(0, pageSize) : rows;
+        long watermark = page.isEmpty() ? since : page.getLast().changeSeq();
+        if (watermark > horizon) {
+            // The rest is not commit-safe yet: serve it again on the next call.
+            watermark = Math.max(since, horizon);
+            hasMore = false;
+        }
+        return new CatalogChangesResponse(List.copyOf(page), watermark, hasMore);
+    }
+
+    /**
+     * Highest change_seq no still-running transaction can commit below: the sequence
+     * value read before a snapshot, once every transaction running at that snapshot
+     * has finished. Falls back to the previous horizon after horizonWait.
+     */
+    private long horizon() {
+        long bound = jdbcTemplate.queryForObject(SEQUENCE_VALUE_SQL, Long.class);
+        long xmax = jdbcTemplate.queryForObject(SNAPSHOT_XMAX_SQL, Long.class);
+        long waitUntil = System.nanoTime() + horizonWait.toNanos();
+        while (jdbcTemplate.queryForObject(SNAPSHOT_XMIN_SQL, Long.class) < xmax) {
+            if (System.nanoTime() - waitUntil >= 0) {
+                return lastHorizon.get();
+            }
+            try {
+                Thread.sleep(POLL_INTERVAL_MS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while waiting for the change feed horizon", e);
+            }
+        }
+        return lastHorizon.accumulateAndGet(bound, Math::max);
+    }
+}
@@ -0,0 +1,270 @@
+package com.retail.inventoryservice.service;
+
+import com.retail.inventoryservice.dto.CatalogIngestResult;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyManager;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.jdbc.datasource.DataSourceUtils;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bulk catalog and restock ingest.
+ *
+ * Why COPY instead of JPA saveAll?
+ *   With pooled sequence ids (V10) saveAll can batch its INSERTs, but it still
+ *   loads and dirty-checks an entity per row, and the feed is keyed by sku, so an
+ *   upsert needs a lookup per row first. A million SKUs would be a million entities
+ *   in the persistence context and a million SELECTs before the first batch.
+ *
+ * Instead, the request body is streamed into a session-local staging table with
+ * COPY FROM STDIN (pgjdbc CopyManager), then merged into products/inventory with
+ * two set-based INSERT ... ON CONFLICT statements keyed by sku. The last row per
+ * sku wins; rows that would not change anything are skipped, so re-running the
+ * same feed does not bump versions or invalidate anything.
+ *
+ * Restock semantics: the feed carries the absolute on-hand quantity. It never goes
+ * below what is currently reserved, so in-flight orders stay covered.
+ *
+ * The product caches are cleared in one batched pass after commit (L1 + SCAN-based
+ * L2 clear) instead of evicting a million keys individually.
+ */
+@Slf4j
+@Service
+public class CatalogIngestService {
+
+    public enum Format { CSV, NDJSON }
+
+    private static final String CREATE_STAGE_SQL = """
+            CREATE TEMP TABLE catalog_stage (
+                seq         BIGSERIAL,
+                sku         VARCHAR(64),
+                name        VARCHAR(255),
+                description TEXT,
+                price       DECIMAL(10, 2),
+                category    VARCHAR(100),
+                image_url   VARCHAR(500),
+                active      BOOLEAN,
+                quantity    INTEGER
+            ) ON COMMIT DROP
+            """;
+
+    // Column order of the CSV feed; the header line is skipped.
+    private static final String COPY_CSV_SQL =
+            "COPY catalog_stage (sku, name, description, price, category, image_url, active, quantity) " +
+            "FROM STDIN WITH (FORMAT csv, HEADER true)";
+
+    // NDJSON lines are loaded verbatim into a jsonb column: CSV format with quote and
+    // delimiter bytes that never occur in JSON text, so no escaping is applied.
+    private static final String CREATE_RAW_STAGE_SQL =
+            "CREATE TEMP TABLE catalog_stage_raw (seq BIGSERIAL, doc JSONB) ON COMMIT DROP";
+
+    private static final String COPY_NDJSON_SQL =
+            "COPY catalog_stage_raw (doc) FROM STDIN WITH (FORMAT csv, QUOTE E'\\x01', DELIMITER E'\\x02')";
+
+    private static final String EXPAND_NDJSON_SQL = """
+            INSERT INTO catalog_stage (sku, name, description, price, category, image_url, active, quantity)
+            SELECT doc->>'sku', doc->>'name', doc->>'description', (doc->>'price')::numeric,
+                   doc->>'category', doc->>'imageUrl', (doc->>'active')::boolean, (doc->>'quantity')::int
+            FROM catalog_stage_raw
+            WHERE doc IS NOT NULL
+            ORDER BY seq
+            """;
+
+    private static final String COUNT_REJECTED_SQL =
+            "SELECT count(*) FROM catalog_stage WHERE sku IS NULL OR name IS NULL OR price IS NULL";
+
+    private static final String UPSERT_PRODUCTS_SQL = """
+            INSERT INTO products (sku, name, description, price, category, image_url, active)
+            SELECT DISTINCT ON (sku) sku, name, description, price, category, image_url, COALESCE(active, true)
+            FROM catalog_stage
+            WHERE sku IS NOT NULL AND name IS NOT NULL AND price IS NOT NULL
+            ORDER BY sku, seq DESC
+            ON CONFLICT (sku) DO UPDATE SET
+                name        = EXCLUDED.name,
+                description = EXCLUDED.description,
+                price       = EXCLUDED.price,
+                category    = EXCLUDED.category,
+                image_url   = EXCLUDED.image_url,
+                active      = EXCLUDED.active,
+                version     = products.version + 1,
+                updated_at  = CURRENT_TIMESTAMP
+            WHERE (products.name, products.description, products.price,
+                   products.category, products.image_url, products.active)
+                  IS DISTINCT FROM
+                  (EXCLUDED.name, EXCLUDED.description, EXCLUDED.price,
+                   EXCLUDED.category, EXCLUDED.image_url, EXCLUDED.active)
+            """;
+
+    // (product_id, quantity) the feed sets; shared with StockStore.beforeAbsoluteStockWrite.
+    private static final String STAGED_STOCK_SQL = """
+            SELECT p.id AS product_id, s.quantity
+            FROM (SELECT DISTINCT ON (sku) sku, quantity
+                  FROM catalog_stage
+                  WHERE sku IS NOT NULL AND quantity IS NOT NULL
+                  ORDER BY sku, seq DESC) s
+            JOIN products p ON p.sku = s.sku
+            """;
+
+    private static final String UPSERT_INVENTORY_SQL = "INSERT INTO inventory (product_id, quantity)\n"
+            + STAGED_STOCK_SQL + """
+            ON CONFLICT (product_id) DO UPDATE SET
+                quantity   = GREATEST(EXCLUDED.quantity, inventory.reserved),
+                version    = inventory.version + 1,
+                updated_at = CURRENT_TIMESTAMP
+            WHERE inventory.quantity IS DISTINCT FROM GREATEST(EXCLUDED.quantity, inventory.reserved)
+            """;
+
+    private final DataSource dataSource;
+    private final CacheManager cacheManager;
+    private final StockStore stockStore;
+    private final Counter rowsStreamedCounter;
+    private final Counter rowsRejectedCounter;
+    private final Counter productsUpsertedCounter;
+    private final Counter inventoryUpsertedCounter;
+    private final Timer ingestTimer;
+
+    public CatalogIngestService(DataSource dataSource,
+                                CacheManager cacheManager,
+                                StockStore stockStore,
+                                MeterRegistry meterRegistry) {
+        this.dataSource = dataSource;
+        this.cacheManager = cacheManager;
+        this.stockStore = stockStore;
+        this.rowsStreamedCounter = Counter.builder("catalog.ingest.rows.streamed.total")
+                .description("Feed lines streamed into the COPY staging table (ingest progress)")
+                .register(meterRegistry);
+        this.rowsRejectedCounter = Counter.builder("catalog.ingest.rows.rejected.total")
+                .description("Staged rows missing sku, name or price")
+                .register(meterRegistry);
+        this.productsUpsertedCounter = Counter.builder("catalog.ingest.products.upserted.total")
+                .description("Products inserted or changed by bulk ingest")
+                .register(meterRegistry);
+        this.inventoryUpsertedCounter = Counter.builder("catalog.ingest.inventory.upserted.total")
+                .description("Inventory rows inserted or restocked by bulk ingest")
+                .register(meterRegistry);
+        this.ingestTimer = Timer.builder("catalog.ingest.duration")
+                .description("Time to stage and merge one bulk ingest feed")
+                .register(meterRegistry);
+    }
+
+    @Transactional
+    public CatalogIngestResult ingest(InputStream feed, Format format) throws IOException {
+        long start = System.nanoTime();
+        Connection connection = DataSourceUtils.getConnection(dataSource);
+        try (Statement statement = connection.createStatement()) {
+            CopyManager copyManager = connection.unwrap(PGConnection.class).getCopyAPI();
+            InputStream counted = new LineCountingInputStream(feed, rowsStreamedCounter);
+
+            statement.execute(CREATE_STAGE_SQL);
+            long staged;
+            if (format == Format.CSV) {
+                staged = copyManager.copyIn(COPY_CSV_SQL, counted);
+            } else {
+                statement.execute(CREATE_RAW_STAGE_SQL);
+                copyManager.copyIn(COPY_NDJSON_SQL, counted);
+                staged = statement.executeUpdate(EXPAND_NDJSON_SQL);
+            }
+            statement.execute("ANALYZE catalog_stage");
+
+            long rejected;
+            try (ResultSet rs = statement.executeQuery(COUNT_REJECTED_SQL)) {
+                rs.next();
+                rejected = rs.getLong(1);
+            }
+            int products = statement.executeUpdate(UPSERT_PRODUCTS_SQL);
+            stockStore.beforeAbsoluteStockWrite(STAGED_STOCK_SQL);
+            int inventory = statement.executeUpdate(UPSERT_INVENTORY_SQL);
+
+            rowsRejectedCounter.increment(rejected);
+            productsUpsertedCounter.increment(products);
+            inventoryUpsertedCounter.increment(inventory);
+            if (products > 0 || inventory > 0) {
+                clearProductCachesAfterCommit();
+            }
+
+            long durationNanos = System.nanoTime() - start;
+            ingestTimer.record(durationNanos, TimeUnit.NANOSECONDS);
+            log.info("Catalog ingest ({}): staged={}, rejected={}, productsUpserted={}, inventoryUpserted={}, {}ms",
+                    format, staged, rejected, products, inventory, durationNanos / 1_000_000);
+            return new CatalogIngestResult(staged, rejected, products, inventory, durationNanos / 1_000_000);
+        } catch (SQLException e) {
+            // Class 22 (data exception) / 23 (integrity): the feed is malformed, not the server.
+            String state = e.getSQLState();
+            if (state != null && (state.startsWith("22") || state.startsWith("23"))) {
+                throw new IllegalArgumentException("Catalog feed rejected: " + e.getMessage());
+            }
+            throw new IllegalStateException("Catalog ingest failed", e);
+        } finally {
+            DataSourceUtils.releaseConnection(connection, dataSource);
+        }
+    }
+
+    private void clearProductCachesAfterCommit() {
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                for (String name : new String[]{"product", "product-bytes"}) {
+                    Cache cache = cacheManager.getCache(name);
+                    if (cache != null) {
+                        cache.clear();
+                    }
+                }
+                log.info("Product caches cleared after bulk ingest");
+            }
+        });
+    }
+
+    /**
+     * Counts newline bytes as the feed streams through COPY, so ingest progress is
+     * visible in metrics while the COPY is still running.
+     */
+    private static final class LineCountingInputStream extends FilterInputStream {
+
+        private final Counter lines;
+
+        LineCountingInputStream(InputStream in, Counter lines) {
+            super(in);
+            this.lines = lines;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b == '\n') {
+                lines.increment();
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] buf, int off, int len) throws IOException {
+            int n = super.read(buf, off, len);
+            int count = 0;
+            for (int i = off; i < off + n; i++) {
+                if (buf[i] == '\n') count++;
+            }
+            if (count > 0) {
+                lines.increment(count);
+            }
+            return n;
+        }
+    }
+}
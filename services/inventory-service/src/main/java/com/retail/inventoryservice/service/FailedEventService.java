@@ -130,14 +130,14 @@ public class FailedEventService {
                 PaymentCompletedEvent event = objectMapper.readValue(
                         failedEvent.getPayload(), PaymentCompletedEvent.class);
                 for (PaymentCompletedEvent.ItemDetail item : event.items()) {
-                    inventoryService.confirmDeduction(item.productId(), item.quantity());
+                    inventoryService.confirmDeduction(event.orderId(), item.productId(), item.quantity());
                 }
             }
             case "payment-failed", "payment-failed-dlt" -> {
                 PaymentFailedEvent event = objectMapper.readValue(
                         failedEvent.getPayload(), PaymentFailedEvent.class);
                 for (PaymentFailedEvent.ItemDetail item : event.items()) {
-                    inventoryService.releaseReservation(item.productId(), item.quantity());
+                    inventoryService.releaseReservation(event.orderId(), item.productId(), item.quantity());
                 }
             }
             default -> throw new IllegalArgumentException(
@@ -0,0 +1,218 @@
+package com.retail.inventoryservice.service;
+
+import com.retail.inventoryservice.service.InventoryService.BatchReservation;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * Single-writer reservation queue for designated hot products
+ * (inventory.hot-skus.product-ids).
+ *
+ * Concurrent reserveStock transactions on one very hot row queue on its row lock,
+ * each holding a pool connection while it waits. Here callers for a hot product only
+ * enqueue; one writer thread per product takes up to batch-size pending requests,
+ * decides them in arrival order under a single row lock and commits the net change
+ * with one UPDATE (InventoryService.reserveStockBatch). Each caller is answered after
+ * that commit. Batching delay is roughly one batch transaction under load and zero
+ * when idle (the writer blocks on the first request, then drains what else is there).
+ *
+ * ReserveOrder requests that include a hot product go through the same queue (that of
+ * their lowest hot product id): the writer runs them one at a time between batches,
+ * each as the usual all-or-nothing InventoryService.reserveOrder transaction, so a
+ * line that runs out of stock still rolls back the whole order. They are not grouped,
+ * but they no longer hold a pool connection while waiting for the hot row.
+ *
+ * Reservations for every other product go straight to InventoryService. Other
+ * replicas and confirm/release still update the row directly; they just take their
+ * turn on the row lock between batches.
+ *
+ * Only for inventory.stock-mode=in-place: the ledger store appends one movement per
+ * order and already keeps hot rows out of the UPDATE path.
+ */
+@Slf4j
+@Component
+public class HotSkuReservationQueue {
+
+    private static final Duration FULL_QUEUE_RETRY_AFTER = Duration.ofMillis(100);
+
+    private final InventoryService inventoryService;
+    private final int batchSize;
+    private final int queueCapacity;
+    private final Map<Long, Lane> lanes = new ConcurrentHashMap<>();
+    private volatile boolean running = true;
+
+    private final DistributionSummary batchSizeSummary;
+
+    public HotSkuReservationQueue(InventoryService inventoryService,
+                                  @Value("${inventory.hot-skus.product-ids:}") Set<Long> productIds,
+                                  @Value("${inventory.hot-skus.batch-size:64}") int batchSize,
+                                  @Value("${inventory.hot-skus.queue-capacity:10000}") int queueCapacity,
+                                  @Value("${inventory.stock-mode:in-place}") String stockMode,
+                                  MeterRegistry meterRegistry) {
+        if (!productIds.isEmpty() && "ledger".equals(stockMode)) {
+            throw new IllegalStateException("inventory.hot-skus requires inventory.stock-mode=in-place");
+        }
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("inventory.hot-skus.batch-size must be positive: " + batchSize);
+        }
+        this.inventoryService = inventoryService;
+        this.batchSize = batchSize;
+        this.queueCapacity = queueCapacity;
+
+        this.batchSizeSummary = DistributionSummary.builder("inventory.hotsku.batch.size")
+                .description("Reservations decided per hot SKU batch transaction")
+                .register(meterRegistry);
+        Gauge.builder("inventory.hotsku.queue.depth", lanes,
+                        l -> l.values().stream().mapToInt(lane -> lane.queue.size()).sum())
+                .description("Reservations waiting in hot SKU queues")
+                .register(meterRegistry);
+
+        for (Long productId : productIds) {
+            Lane lane = new Lane(productId, new LinkedBlockingQueue<>(queueCapacity));
+            lanes.put(productId, lane);
+            Thread.ofPlatform().name("hot-sku-writer-" + productId).daemon().start(() -> drain(lane));
+        }
+        if (!productIds.isEmpty()) {
+            log.info("Hot SKU reservation queues: products={}, batchSize={}", productIds, batchSize);
+        }
+    }
+
+    /**
+     * Reserve stock, through the product's queue when it is a hot SKU.
+     */
+    public boolean reserve(Long orderId, Long productId, int quantity) {
+        Lane lane = lanes.get(productId);
+        if (lane == null) {
+            return inventoryService.reserveStock(orderId, productId, quantity);
+        }
+        return enqueue(lane, new Pending(new BatchReservation(orderId, quantity), null, new CompletableFuture<>()));
+    }
+
+    /**
+     * Reserve every line of an order (InventoryService.reserveOrder), through the queue
+     * of its lowest hot product id when it has any.
+     *
+     * @throws InsufficientStockException when a line runs out; nothing is reserved
+     */
+    public void reserveOrder(Long orderId, Map<Long, Integer> quantities) {
+        Lane lane = quantities.keySet().stream()
+                .sorted()
+                .map(lanes::get)
+                .filter(Objects::nonNull)
+                .findFirst()
+                .orElse(null);
+        if (lane == null) {
+            inventoryService.reserveOrder(orderId, quantities);
+            return;
+        }
+        enqueue(lane, new Pending(new BatchReservation(orderId, quantities.get(lane.productId)),
+                quantities, new CompletableFuture<>()));
+    }
+
+    private boolean enqueue(Lane lane, Pending pending) {
+        if (!running || !lane.queue.offer(pending)) {
+            throw new ReservationRejectedException(queueCapacity, FULL_QUEUE_RETRY_AFTER);
+        }
+        // No timeout: a caller that gave up could not tell whether its request was committed.
+        try {
+            return pending.result.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        running = false;
+        for (Lane lane : lanes.values()) {
+            List<Pending> abandoned = new ArrayList<>();
+            lane.queue.drainTo(abandoned);
+            abandoned.forEach(p -> p.result.completeExceptionally(
+                    new IllegalStateException("Inventory service shutting down")));
+        }
+    }
+
+    private void drain(Lane lane) {
+        List<Pending> taken = new ArrayList<>(batchSize);
+        List<Pending> batch = new ArrayList<>(batchSize);
+        while (running) {
+            try {
+                taken.add(lane.queue.take());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            lane.queue.drainTo(taken, batchSize - 1);
+            for (Pending pending : taken) {
+                if (pending.orderLines == null) {
+                    batch.add(pending);
+                    continue;
+                }
+                // Keep arrival order: what was queued before the order is decided first.
+                reserveBatch(lane, batch);
+                reserveOrder(pending);
+            }
+            reserveBatch(lane, batch);
+            taken.clear();
+        }
+    }
+
+    private void reserveBatch(Lane lane, List<Pending> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        try {
+            boolean[] reserved = inventoryService.reserveStockBatch(lane.productId,
+                    batch.stream().map(Pending::reservation).toList());
+            for (int i = 0; i < batch.size(); i++) {
+                batch.get(i).result.complete(reserved[i]);
+            }
+            batchSizeSummary.record(batch.size());
+        } catch (RuntimeException e) {
+            log.error("Hot SKU batch failed: productId={}, requests={}", lane.productId, batch.size(), e);
+            batch.forEach(p -> p.result.completeExceptionally(e));
+        }
+        batch.clear();
+    }
+
+    private void reserveOrder(Pending pending) {
+        try {
+            inventoryService.reserveOrder(pending.reservation.orderId(), pending.orderLines);
+            pending.result.complete(true);
+        } catch (RuntimeException e) {
+            // InsufficientStockException included: the caller rethrows it.
+            pending.result.completeExceptionally(e);
+        }
+    }
+
+    private record Lane(long productId, BlockingQueue<Pending> queue) {
+    }
+
+    /**
+     * orderLines is null for a single-product reservation, otherwise every line of a
+     * ReserveOrder request (reservation then carries its order id and hot quantity).
+     */
+    private record Pending(BatchReservation reservation, Map<Long, Integer> orderLines,
+                           CompletableFuture<Boolean> result) {
+    }
+}
@@ -0,0 +1,47 @@
+package com.retail.inventoryservice.service;
+
+import com.retail.inventoryservice.repository.InventoryRepository;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * Default stock store: atomic conditional UPDATEs on the inventory row (see
+ * InventoryRepository for why the WHERE clause prevents overselling).
+ */
+@Component
+@ConditionalOnProperty(name = "inventory.stock-mode", havingValue = "in-place", matchIfMissing = true)
+public class InPlaceStockStore implements StockStore {
+
+    private final InventoryRepository inventoryRepository;
+    private final StockAvailabilityIndex availabilityIndex;
+
+    public InPlaceStockStore(InventoryRepository inventoryRepository,
+                             StockAvailabilityIndex availabilityIndex) {
+        this.inventoryRepository = inventoryRepository;
+        this.availabilityIndex = availabilityIndex;
+    }
+
+    @Override
+    public boolean reserve(Long orderId, Long productId, int quantity) {
+        if (inventoryRepository.reserveStock(productId, quantity) == 0) {
+            return false;
+        }
+        availabilityIndex.recordLocalChange(productId);
+        return true;
+    }
+
+    @Override
+    public boolean confirm(Long orderId, Long productId, int quantity) {
+        // quantity and reserved drop together: availability is unchanged.
+        return inventoryRepository.confirmStockDeduction(productId, quantity) > 0;
+    }
+
+    @Override
+    public boolean release(Long orderId, Long productId, int quantity) {
+        if (inventoryRepository.releaseStock(productId, quantity) == 0) {
+            return false;
+        }
+        availabilityIndex.recordLocalChange(productId);
+        return true;
+    }
+}
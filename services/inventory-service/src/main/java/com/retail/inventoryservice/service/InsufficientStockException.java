@@ -0,0 +1,26 @@
+package com.retail.inventoryservice.service;
+
+/**
+ * A line of a multi-line reservation could not be reserved. Thrown inside the
+ * reservation transaction so the lines already reserved roll back with it.
+ *
+ * No stack trace: running out of stock is a business outcome, not a fault.
+ */
+public class InsufficientStockException extends IllegalStateException {
+
+    private final long productId;
+
+    public InsufficientStockException(long productId) {
+        super("Insufficient stock for product: " + productId);
+        this.productId = productId;
+    }
+
+    public long getProductId() {
+        return productId;
+    }
+
+    @Override
+    public synchronized Throwable fillInStackTrace() {
+        return this;
+    }
+}
@@ -1,5 +1,6 @@
 package com.retail.inventoryservice.service;
 
+import com.retail.inventoryservice.config.ProductCacheKeyGenerator;
 import com.retail.inventoryservice.dto.ProductResponse;
 import com.retail.inventoryservice.dto.ProductResponseV2;
 import com.retail.inventoryservice.dto.StockCheckResponse;
@@ -8,20 +9,31 @@ import com.retail.inventoryservice.entity.Inventory;
 import com.retail.inventoryservice.entity.Product;
 import com.retail.inventoryservice.kafka.InventoryEventProducer;
 import com.retail.inventoryservice.kafka.event.InventoryReservedEvent;
+import com.retail.inventoryservice.kafka.event.OrderInventoryReservedEvent;
 import com.retail.inventoryservice.repository.InventoryRepository;
 import com.retail.inventoryservice.repository.ProductRepository;
 import io.micrometer.core.instrument.Counter;
 import io.micrometer.core.instrument.MeterRegistry;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
 import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.cache.annotation.Cacheable;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.OptionalInt;
+import java.util.TreeMap;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 
@@ -32,6 +44,11 @@ public class InventoryService {
     private final ProductRepository productRepository;
     private final InventoryRepository inventoryRepository;
     private final InventoryEventProducer eventProducer;
+    private final StockStore stockStore;
+    private final StockAvailabilityIndex availabilityIndex;
+    private final ProductIdFilter productIdFilter;
+    private final CacheManager cacheManager;
+    private final ProductCacheKeyGenerator keyGenerator;
 
     private final Counter stockReservedCounter;
     private final Counter stockReservationFailedCounter;
@@ -42,10 +59,20 @@ public class InventoryService {
     public InventoryService(ProductRepository productRepository,
                             InventoryRepository inventoryRepository,
                             InventoryEventProducer eventProducer,
+                            StockStore stockStore,
+                            StockAvailabilityIndex availabilityIndex,
+                            ProductIdFilter productIdFilter,
+                            CacheManager cacheManager,
+                            ProductCacheKeyGenerator keyGenerator,
                             MeterRegistry meterRegistry) {
         this.productRepository = productRepository;
         this.inventoryRepository = inventoryRepository;
         this.eventProducer = eventProducer;
+        this.stockStore = stockStore;
+        this.availabilityIndex = availabilityIndex;
+        this.productIdFilter = productIdFilter;
+        this.cacheManager = cacheManager;
+        this.keyGenerator = keyGenerator;
 
         this.stockReservedCounter = Counter.builder("inventory.reservations.success.total")
                 .description("Successful stock reservations")
@@ -98,17 +125,86 @@ public class InventoryService {
     @Transactional(readOnly = true)
     public ProductResponse getProduct(Long productId) {
         Product product = productRepository.findById(productId)
-                .orElseThrow(() -> new IllegalArgumentException("Product not found: " + productId));
+                .orElseThrow(() -> {
+                    productIdFilter.recordMiss(productId);
+                    return new ProductNotFoundException(productId);
+                });
         int available = inventoryRepository.findByProductId(product.getId())
                 .map(Inventory::getAvailableStock)
                 .orElse(0);
         return toProductResponse(product, available);
     }
 
-    @Transactional(readOnly = true)
+    /**
+     * Several products in one call (GetProducts RPC: cart validation, order pricing).
+     *
+     * Entries are read from the product cache (the same entries getProduct fills);
+     * the misses are loaded with one query per table and written back. Available stock
+     * comes from the availability index when it is live, since a cached entry may
+     * predate the latest reservation. Unknown and deactivated ids are left out of the
+     * result, so callers report them as unavailable rather than pricing them.
+     */
+    public Map<Long, ProductResponse> getProducts(Collection<Long> productIds) {
+        Cache cache = cacheManager.getCache("product");
+        Map<Long, ProductResponse> found = new LinkedHashMap<>();
+        List<Long> misses = new ArrayList<>();
+        for (Long productId : new LinkedHashSet<>(productIds)) {
+            ProductResponse cached = cache != null
+                    ? cache.get(keyGenerator.keyForProduct(productId), ProductResponse.class)
+                    : null;
+            if (cached != null) {
+                found.put(productId, cached);
+            } else if (!productIdFilter.rejectsProduct(productId)) {
+                misses.add(productId);
+            }
+        }
+
+        if (!misses.isEmpty()) {
+            Map<Long, Inventory> inventoryMap = inventoryRepository.findByProductIdIn(misses)
+                    .stream()
+                    .collect(Collectors.toMap(Inventory::getProductId, Function.identity()));
+            for (Product product : productRepository.findAllById(misses)) {
+                Inventory inventory = inventoryMap.get(product.getId());
+                ProductResponse loaded = toProductResponse(product, inventory != null ? inventory.getAvailableStock() : 0);
+                found.put(product.getId(), loaded);
+                if (cache != null) {
+                    cache.put(keyGenerator.keyForProduct(product.getId()), loaded);
+                }
+            }
+        }
+
+        // Deactivated products cannot be priced or ordered: reported like unknown ids.
+        found.values().removeIf(product -> !product.active());
+        found.replaceAll((productId, product) -> {
+            OptionalInt indexed = availabilityIndex.lookup(productId);
+            return indexed.isPresent() && indexed.getAsInt() != product.availableStock()
+                    ? new ProductResponse(product.id(), product.name(), product.description(), product.price(),
+                            product.category(), product.imageUrl(), indexed.getAsInt(), product.active(),
+                            product.version())
+                    : product;
+        });
+        return found;
+    }
+
+    /**
+     * Answered from the in-memory availability index when it is live. Deliberately not
+     * @Transactional: an index hit must not check out a pooled connection.
+     */
     public StockCheckResponse checkStock(Long productId) {
+        if (productIdFilter.rejectsStockCheck(productId)) {
+            throw new ProductNotFoundException(productId);
+        }
+        OptionalInt indexed = availabilityIndex.lookup(productId);
+        if (indexed.isPresent()) {
+            int available = indexed.getAsInt();
+            return new StockCheckResponse(productId, available, available > 0);
+        }
+
         Inventory inventory = inventoryRepository.findByProductId(productId)
-                .orElseThrow(() -> new IllegalArgumentException("Inventory not found for product: " + productId));
+                .orElseThrow(() -> {
+                    productIdFilter.recordMiss(productId);
+                    return new ProductNotFoundException(productId);
+                });
 
         int available = inventory.getAvailableStock();
         return new StockCheckResponse(productId, available, available > 0);
@@ -117,14 +213,14 @@ public class InventoryService {
     /**
      * Reserve stock for an order. Called by Order Service via REST.
      *
-     * Uses the atomic reserveStock query to prevent race conditions.
+     * The StockStore applies the movement atomically so concurrent reservations
+     * cannot oversell.
      * If successful, publishes an InventoryReserved event to Kafka.
      */
-    @CacheEvict(value = "product", keyGenerator = "productCacheKeyGenerator")
+    @CacheEvict(value = {"product", "product-bytes"}, keyGenerator = "productCacheKeyGenerator")
     @Transactional
     public boolean reserveStock(Long orderId, Long productId, int quantity) {
-        int updated = inventoryRepository.reserveStock(productId, quantity);
-        if (updated == 0) {
+        if (!stockStore.reserve(orderId, productId, quantity)) {
             log.warn("Failed to reserve stock: productId={}, qty={} (insufficient stock)", productId, quantity);
             stockReservationFailedCounter.increment();
             return false;
@@ -137,16 +233,98 @@ public class InventoryService {
         return true;
     }
 
+    /**
+     * Reserve stock for several orders of one product in a single transaction. Called by
+     * the HotSkuReservationQueue writer, the only writer of reservations for that product
+     * on this replica.
+     *
+     * The row is locked once and every request is decided in order against the available
+     * count read under that lock; the accepted total is then written with one
+     * reserveStock UPDATE and committed together (group commit).
+     *
+     * @return per request, whether it was reserved
+     */
+    @CacheEvict(value = {"product", "product-bytes"}, keyGenerator = "productCacheKeyGenerator")
+    @Transactional
+    public boolean[] reserveStockBatch(Long productId, List<BatchReservation> reservations) {
+        boolean[] reserved = new boolean[reservations.size()];
+        int available = inventoryRepository.lockAvailableStock(productId).orElse(0);
+        int total = 0;
+        for (int i = 0; i < reservations.size(); i++) {
+            int quantity = reservations.get(i).quantity();
+            if (quantity <= available - total) {
+                reserved[i] = true;
+                total += quantity;
+            }
+        }
+        if (total > 0 && inventoryRepository.reserveStock(productId, total) == 0) {
+            // Cannot happen while the row lock is held; fail the batch rather than guess.
+            throw new IllegalStateException("Batch reservation lost its row lock: productId=" + productId);
+        }
+        if (total > 0) {
+            availabilityIndex.recordLocalChange(productId);
+        }
+
+        for (int i = 0; i < reservations.size(); i++) {
+            BatchReservation reservation = reservations.get(i);
+            if (reserved[i]) {
+                stockReservedCounter.increment();
+                stockUnitsReservedCounter.increment(reservation.quantity());
+                eventProducer.publishInventoryReserved(
+                        new InventoryReservedEvent(reservation.orderId(), productId, reservation.quantity()));
+            } else {
+                stockReservationFailedCounter.increment();
+            }
+        }
+        log.info("Batch reserved: productId={}, requests={}, accepted={}, units={}",
+                productId, reservations.size(), countTrue(reserved), total);
+        return reserved;
+    }
+
+    /**
+     * Reserve every line of an order in one transaction. Called by the ReserveOrder RPC,
+     * through HotSkuReservationQueue's writer when the order includes a hot product.
+     *
+     * Products are reserved in id order, so two orders sharing products lock their rows
+     * in the same order and cannot deadlock. A line without enough stock throws
+     * InsufficientStockException, which rolls back the lines already reserved. On
+     * success one order-level event replaces the per-line inventory-reserved events.
+     *
+     * @param quantities quantity per product, lines for the same product already merged
+     */
+    @Transactional
+    public void reserveOrder(Long orderId, Map<Long, Integer> quantities) {
+        Map<Long, Integer> lines = new TreeMap<>(quantities);
+        for (Map.Entry<Long, Integer> line : lines.entrySet()) {
+            if (!stockStore.reserve(orderId, line.getKey(), line.getValue())) {
+                log.warn("Failed to reserve order: orderId={}, productId={}, qty={} (insufficient stock)",
+                        orderId, line.getKey(), line.getValue());
+                stockReservationFailedCounter.increment();
+                throw new InsufficientStockException(line.getKey());
+            }
+        }
+        evictProductsAfterCommit(lines.keySet());
+
+        lines.values().forEach(quantity -> {
+            stockReservedCounter.increment();
+            stockUnitsReservedCounter.increment(quantity);
+        });
+        log.info("Order stock reserved: orderId={}, lines={}", orderId, lines.size());
+        eventProducer.publishOrderInventoryReserved(new OrderInventoryReservedEvent(orderId,
+                lines.entrySet().stream()
+                        .map(line -> new OrderInventoryReservedEvent.Line(line.getKey(), line.getValue()))
+                        .toList()));
+    }
+
     /**
      * Confirm stock deduction after successful payment.
      * Called when "payment-completed" event is received from Kafka.
      */
-    @CacheEvict(value = "product", keyGenerator = "productCacheKeyGenerator")
+    @CacheEvict(value = {"product", "product-bytes"}, keyGenerator = "productCacheKeyGenerator")
     @Transactional
-    public void confirmDeduction(Long productId, int quantity) {
-        int updated = inventoryRepository.confirmStockDeduction(productId, quantity);
-        if (updated == 0) {
-            log.error("Failed to confirm stock deduction: productId={}, qty={}", productId, quantity);
+    public void confirmDeduction(Long orderId, Long productId, int quantity) {
+        if (!stockStore.confirm(orderId, productId, quantity)) {
+            log.error("Failed to confirm stock deduction: orderId={}, productId={}, qty={}", orderId, productId, quantity);
         } else {
             stockDeductionConfirmedCounter.increment();
             log.info("Stock deduction confirmed: productId={}, qty={}", productId, quantity);
@@ -157,16 +335,16 @@ public class InventoryService {
      * Release reserved stock after failed payment or order cancellation.
      * Called when "payment-failed" event is received from Kafka.
      */
-    @CacheEvict(value = "product", keyGenerator = "productCacheKeyGenerator")
+    @CacheEvict(value = {"product", "product-bytes"}, keyGenerator = "productCacheKeyGenerator")
     @Transactional
-    public void releaseReservation(Long productId, int quantity) {
-        int updated = inventoryRepository.releaseStock(productId, quantity);
-        if (updated == 0) {
-            log.error("Failed to release reservation: productId={}, qty={}", productId, quantity);
-        } else {
-            stockReleasedCounter.increment();
-            log.info("Reservation released: productId={}, qty={}", productId, quantity);
+    public boolean releaseReservation(Long orderId, Long productId, int quantity) {
+        if (!stockStore.release(orderId, productId, quantity)) {
+            log.error("Failed to release reservation: orderId={}, productId={}, qty={}", orderId, productId, quantity);
+            return false;
         }
+        stockReleasedCounter.increment();
+        log.info("Reservation released: productId={}, qty={}", productId, quantity);
+        return true;
     }
 
     @Transactional(readOnly = true)
@@ -207,7 +385,9 @@ public class InventoryService {
                 product.getPrice(),
                 product.getCategory(),
                 product.getImageUrl(),
-                availableStock
+                availableStock,
+                product.isActive(),
+                product.getVersion()
         );
     }
 
@@ -232,4 +412,38 @@ public class InventoryService {
                 status
         );
     }
+
+    /**
+     * Same entries @CacheEvict removes for a single product, for every product of a
+     * multi-line reservation.
+     */
+    private void evictProductsAfterCommit(Collection<Long> productIds) {
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                for (String name : new String[]{"product", "product-bytes"}) {
+                    Cache cache = cacheManager.getCache(name);
+                    if (cache != null) {
+                        productIds.forEach(id -> cache.evict(keyGenerator.keyForProduct(id)));
+                    }
+                }
+            }
+        });
+    }
+
+    private static int countTrue(boolean[] values) {
+        int count = 0;
+        for (boolean value : values) {
+            if (value) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * One queued reservation of a batch (see reserveStockBatch).
+     */
+    public record BatchReservation(Long orderId, int quantity) {
+    }
 }
@@ -0,0 +1,189 @@
+package com.retail.inventoryservice.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Folds ledger movements into the inventory snapshot rows (ledger stock mode).
+ *
+ * Each pass takes the STOCK_LEDGER advisory lock exclusively, which waits for the
+ * in-flight appends (they hold it shared) and briefly holds new ones back. At that
+ * point every movement up to max(id) is final, so the whole range is folded with one
+ * set-based UPDATE (each touched inventory row is rewritten once per pass, however
+ * many movements it had) and the ledger position advances. A try-lock keeps replicas
+ * from running passes back to back.
+ *
+ * Folding rewrites inventory rows, so the V7 trigger notifies the availability index
+ * and the catalog change feed advances: in ledger mode those views (and the product
+ * listings that read the snapshot) trail reservations by up to one interval.
+ * Reservation decisions themselves always read snapshot + unfolded movements.
+ *
+ * Folded movements are only history. Every prune-interval, the replica that wins the
+ * compactor lock deletes folded movements older than retention, in batches of one
+ * transaction each.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "inventory.stock-mode", havingValue = "ledger")
+public class LedgerCompactor {
+
+    private static final String TRY_COMPACTOR_SQL =
+            "SELECT pg_try_advisory_xact_lock(" + AdvisoryLocks.NAMESPACE + ", " + AdvisoryLocks.LEDGER_COMPACTOR + ")";
+    private static final String LOCK_LEDGER_SQL =
+            "SELECT pg_advisory_xact_lock(" + AdvisoryLocks.NAMESPACE + ", " + AdvisoryLocks.STOCK_LEDGER + ")";
+    private static final String POSITION_SQL = "SELECT position FROM stock_ledger_state";
+    private static final String MAX_ID_SQL = "SELECT max(id) FROM stock_movements";
+    private static final String FOLD_SQL = """
+            UPDATE inventory i
+            SET quantity = i.quantity + d.quantity_delta,
+                reserved = i.reserved + d.reserved_delta,
+                version  = i.version + 1
+            FROM (SELECT product_id,
+                         sum(quantity_delta) AS quantity_delta,
+                         sum(reserved_delta) AS reserved_delta
+                  FROM stock_movements
+                  WHERE id > ? AND id <= ?
+                  GROUP BY product_id) d
+            WHERE i.product_id = d.product_id
+              AND (d.quantity_delta <> 0 OR d.reserved_delta <> 0)
+            """;
+    private static final String COUNT_SQL = "SELECT count(*) FROM stock_movements WHERE id > ? AND id <= ?";
+    private static final String PRUNE_SQL = """
+            DELETE FROM stock_movements
+            WHERE id IN (SELECT id FROM stock_movements
+                         WHERE id <= (SELECT position FROM stock_ledger_state)
+                           AND created_at < ?
+                         LIMIT ?)
+            """;
+    private static final String ADVANCE_SQL =
+            "UPDATE stock_ledger_state SET position = ?, compacted_at = CURRENT_TIMESTAMP";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(
+            Thread.ofPlatform().name("stock-ledger-compactor").daemon().factory());
+
+    private final Counter foldedMovementsCounter;
+    private final Counter foldedRowsCounter;
+    private final Timer compactionTimer;
+    private final Counter prunedMovementsCounter;
+    private final Duration retention;
+    private final int pruneBatchSize;
+
+    public LedgerCompactor(JdbcTemplate jdbcTemplate,
+                           TransactionTemplate transactionTemplate,
+                           @Value("${inventory.ledger.compaction-interval:500ms}") Duration interval,
+                           @Value("${inventory.ledger.retention:30d}") Duration retention,
+                           @Value("${inventory.ledger.prune-interval:1h}") Duration pruneInterval,
+                           @Value("${inventory.ledger.prune-batch-size:10000}") int pruneBatchSize,
+                           MeterRegistry meterRegistry) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.retention = retention;
+        this.pruneBatchSize = pruneBatchSize;
+
+        this.foldedMovementsCounter = Counter.builder("inventory.ledger.folded.movements.total")
+                .description("Ledger movements folded into inventory snapshots")
+                .register(meterRegistry);
+        this.foldedRowsCounter = Counter.builder("inventory.ledger.folded.rows.total")
+                .description("Inventory snapshot rows rewritten by compaction")
+                .register(meterRegistry);
+        this.compactionTimer = Timer.builder("inventory.ledger.compaction.duration")
+                .description("Time for one compaction pass, including waiting for in-flight appends")
+                .register(meterRegistry);
+        this.prunedMovementsCounter = Counter.builder("inventory.ledger.pruned.movements.total")
+                .description("Folded ledger movements deleted after the retention period")
+                .register(meterRegistry);
+
+        long intervalMs = interval.toMillis();
+        scheduler.scheduleWithFixedDelay(this::compact, intervalMs, intervalMs, TimeUnit.MILLISECONDS);
+        long pruneIntervalMs = pruneInterval.toMillis();
+        scheduler.scheduleWithFixedDelay(this::prune, pruneIntervalMs, pruneIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Folds everything appended so far inside the caller's transaction. The exclusive
+     * ledger lock is then held until that transaction ends.
+     */
+    public void foldInCurrentTransaction() {
+        jdbcTemplate.query(LOCK_LEDGER_SQL, rs -> { });
+        fold();
+    }
+
+    /**
+     * Advances the ledger position past everything appended so far, without folding it.
+     * For movements whose effect the caller writes to the snapshot itself; only valid
+     * after foldInCurrentTransaction in the same transaction.
+     */
+    public void markFoldedInCurrentTransaction() {
+        Long maxId = jdbcTemplate.queryForObject(MAX_ID_SQL, Long.class);
+        if (maxId != null) {
+            jdbcTemplate.update(ADVANCE_SQL, maxId);
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        scheduler.shutdownNow();
+    }
+
+    private void compact() {
+        try {
+            compactionTimer.record(() -> transactionTemplate.executeWithoutResult(status -> {
+                Boolean acquired = jdbcTemplate.queryForObject(TRY_COMPACTOR_SQL, Boolean.class);
+                if (Boolean.TRUE.equals(acquired)) {
+                    foldInCurrentTransaction();
+                }
+            }));
+        } catch (RuntimeException e) {
+            // Keep the schedule alive; unfolded movements are still counted by readers.
+            log.warn("Stock ledger compaction failed: {}", e.getMessage());
+        }
+    }
+
+    private void prune() {
+        try {
+            Timestamp cutoff = Timestamp.from(Instant.now().minus(retention));
+            int deleted;
+            do {
+                deleted = transactionTemplate.execute(status -> {
+                    Boolean acquired = jdbcTemplate.queryForObject(TRY_COMPACTOR_SQL, Boolean.class);
+                    return Boolean.TRUE.equals(acquired) ? jdbcTemplate.update(PRUNE_SQL, cutoff, pruneBatchSize) : 0;
+                });
+                prunedMovementsCounter.increment(deleted);
+            } while (deleted == pruneBatchSize);
+        } catch (RuntimeException e) {
+            log.warn("Stock ledger pruning failed: {}", e.getMessage());
+        }
+    }
+
+    private void fold() {
+        Long position = jdbcTemplate.queryForObject(POSITION_SQL, Long.class);
+        Long maxId = jdbcTemplate.queryForObject(MAX_ID_SQL, Long.class);
+        if (position == null || maxId == null || maxId <= position) {
+            return;
+        }
+        Long movements = jdbcTemplate.queryForObject(COUNT_SQL, Long.class, position, maxId);
+        int rows = jdbcTemplate.update(FOLD_SQL, position, maxId);
+        jdbcTemplate.update(ADVANCE_SQL, maxId);
+
+        foldedMovementsCounter.increment(movements == null ? 0 : movements);
+        foldedRowsCounter.increment(rows);
+        log.debug("Stock ledger folded: movements={}, inventoryRows={}, position={}", movements, rows, maxId);
+    }
+}
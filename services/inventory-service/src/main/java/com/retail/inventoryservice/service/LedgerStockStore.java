@@ -0,0 +1,162 @@
+package com.retail.inventoryservice.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Ledger stock store (inventory.stock-mode = ledger): every movement is an INSERT into
+ * stock_movements; the inventory row is only a snapshot that LedgerCompactor folds
+ * movements into (see V8__stock_movement_ledger.sql).
+ *
+ * Locking, all transaction-scoped advisory locks:
+ *   - STOCK_LEDGER, shared: taken by every append, so the compactor's exclusive lock
+ *     only succeeds once every in-flight append has committed or rolled back. Movement
+ *     ids are drawn after this lock, so nothing can later appear below a folded id.
+ *   - product id, exclusive, RESERVE only: a reserve's guard must see every earlier
+ *     reserve of the same product, so reserves for one SKU take turns until commit.
+ *     CONFIRM and RELEASE never lower available, so a reserve that misses a concurrent
+ *     one only errs on the safe side; they append without waiting, as does RESTOCK
+ *     (ingest already holds STOCK_LEDGER exclusively). Readers never wait, and no
+ *     inventory row is rewritten per movement.
+ *
+ * The guarded INSERT computes snapshot + unfolded deltas and only inserts when the
+ * result keeps available and reserved non-negative, the same rule as the in-place
+ * conditional UPDATEs. *
+ * A RELEASE appended next to an uncommitted RESERVE publishes an availability that
+ * misses the reserve; the next compaction rewrites the row and republishes it.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "inventory.stock-mode", havingValue = "ledger")
+public class LedgerStockStore implements StockStore {
+
+    enum MovementType {
+        RESERVE, CONFIRM, RELEASE, RESTOCK
+    }
+
+    private static final String LEDGER_LOCK_SQL =
+            "SELECT pg_advisory_xact_lock_shared(" + AdvisoryLocks.NAMESPACE + ", " + AdvisoryLocks.STOCK_LEDGER + ")";
+    private static final String RESERVE_LOCK_SQL = LEDGER_LOCK_SQL + ", pg_advisory_xact_lock(?)";
+
+    private static final String APPEND_SQL = """
+            WITH current AS (
+                SELECT i.quantity - i.reserved + COALESCE(sum(m.quantity_delta - m.reserved_delta), 0) AS available,
+                       i.reserved + COALESCE(sum(m.reserved_delta), 0) AS reserved
+                FROM inventory i
+                CROSS JOIN stock_ledger_state s
+                LEFT JOIN stock_movements m ON m.product_id = i.product_id AND m.id > s.position
+                WHERE i.product_id = ?
+                GROUP BY i.quantity, i.reserved
+            )
+            INSERT INTO stock_movements (product_id, order_id, movement_type, quantity_delta, reserved_delta)
+            SELECT ?, ?, ?, ?, ?
+            FROM current
+            WHERE current.available + ? >= 0 AND current.reserved + ? >= 0
+            RETURNING id, (SELECT available FROM current) + quantity_delta - reserved_delta
+            """;
+
+    // New level as the ingest UPSERT will write it (never below reserved); the snapshot
+    // is the effective level here because the caller just folded.
+    private static final String RESTOCK_SQL = """
+            INSERT INTO stock_movements (product_id, movement_type, quantity_delta, reserved_delta)
+            SELECT n.product_id, 'RESTOCK',
+                   GREATEST(n.quantity, COALESCE(i.reserved, 0)) - COALESCE(i.quantity, 0), 0
+            FROM (%s) n
+            LEFT JOIN inventory i ON i.product_id = n.product_id
+            WHERE GREATEST(n.quantity, COALESCE(i.reserved, 0)) - COALESCE(i.quantity, 0) <> 0
+            """;
+
+    private static final String NOTIFY_SQL = "SELECT pg_notify('inventory_availability', ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final StockAvailabilityIndex availabilityIndex;
+    private final LedgerCompactor compactor;
+    private final Map<MovementType, Counter> appendedCounters = new EnumMap<>(MovementType.class);
+    private final Counter rejectedCounter;
+
+    public LedgerStockStore(JdbcTemplate jdbcTemplate,
+                            StockAvailabilityIndex availabilityIndex,
+                            LedgerCompactor compactor,
+                            MeterRegistry meterRegistry) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.availabilityIndex = availabilityIndex;
+        this.compactor = compactor;
+        for (MovementType type : MovementType.values()) {
+            appendedCounters.put(type, Counter.builder("inventory.ledger.movements.total")
+                    .description("Stock movements appended to the ledger")
+                    .tag("type", type.name())
+                    .register(meterRegistry));
+        }
+        this.rejectedCounter = Counter.builder("inventory.ledger.movements.rejected.total")
+                .description("Movements not appended because they would make stock negative")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public boolean reserve(Long orderId, Long productId, int quantity) {
+        return append(MovementType.RESERVE, orderId, productId, 0, quantity);
+    }
+
+    @Override
+    public boolean confirm(Long orderId, Long productId, int quantity) {
+        return append(MovementType.CONFIRM, orderId, productId, -quantity, -quantity);
+    }
+
+    @Override
+    public boolean release(Long orderId, Long productId, int quantity) {
+        return append(MovementType.RELEASE, orderId, productId, 0, -quantity);
+    }
+
+    /**
+     * Absolute writes (bulk ingest) must start from a snapshot that already includes
+     * every movement, or unfolded deltas would be applied on top of the new level.
+     * Each level change is then recorded as a RESTOCK movement and marked folded: the
+     * absolute write applies it to the snapshot, the compactor must not apply it again.
+     */
+    @Override
+    public void beforeAbsoluteStockWrite(String newLevelsSql) {
+        compactor.foldInCurrentTransaction();
+        int restocked = jdbcTemplate.update(RESTOCK_SQL.formatted(newLevelsSql));
+        compactor.markFoldedInCurrentTransaction();
+        appendedCounters.get(MovementType.RESTOCK).increment(restocked);
+    }
+
+    private boolean append(MovementType type, Long orderId, long productId, int quantityDelta, int reservedDelta) {
+        if (type == MovementType.RESERVE) {
+            jdbcTemplate.query(RESERVE_LOCK_SQL, rs -> { }, productId);
+        } else {
+            jdbcTemplate.query(LEDGER_LOCK_SQL, rs -> { });
+        }
+        List<long[]> appended = jdbcTemplate.query(APPEND_SQL,
+                (rs, rowNum) -> new long[]{rs.getLong(1), rs.getLong(2)},
+                productId,
+                productId, orderId, type.name(), quantityDelta, reservedDelta,
+                quantityDelta - reservedDelta, reservedDelta);
+        if (appended.isEmpty()) {
+            rejectedCounter.increment();
+            return false;
+        }
+        long movementId = appended.getFirst()[0];
+        int available = (int) appended.getFirst()[1];
+        appendedCounters.get(type).increment();
+
+        // The inventory row is untouched, so the V7 trigger stays quiet: tell the other
+        // replicas directly (delivered at commit) and this one after commit.
+        if (quantityDelta != reservedDelta) {
+            jdbcTemplate.query(NOTIFY_SQL, rs -> { },
+                    productId + ":" + available + ":" + movementId + ":" + System.currentTimeMillis());
+            availabilityIndex.recordLocalChange(productId, available, movementId);
+        }
+        log.debug("Ledger {}: productId={}, orderId={}, movementId={}, available={}",
+                type, productId, orderId, movementId, available);
+        return true;
+    }
+}
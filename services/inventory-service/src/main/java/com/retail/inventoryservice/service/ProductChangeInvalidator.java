@@ -0,0 +1,87 @@
+package com.retail.inventoryservice.service;
+
+import com.retail.inventoryservice.config.ProductCacheKeyGenerator;
+import com.retail.inventoryservice.config.ResponseBytesCache;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Drops cached responses for a product whose catalog fields changed outside the
+ * service's own write paths (V15 "product_changed", heard by every replica).
+ *
+ * Listing pages are only re-checked against stock, so a price, name or deactivation
+ * change would otherwise be served, with a matching strong ETag, until the cache TTL.
+ * Each notification retires all listing pages (one counter bump, applied on the
+ * listener thread) and evicts the product's "product" and "product-bytes" entries on
+ * a separate thread, since the L2 evict is a Dragonfly round trip. After a listener
+ * reconnect, when notifications may have been missed, listing pages are retired too;
+ * single-product entries then age out with their TTL.
+ *
+ * Without the availability index there is no listener, and catalog edits made
+ * elsewhere are picked up by TTL only.
+ */
+@Slf4j
+@Component
+public class ProductChangeInvalidator implements StockAvailabilityIndex.ChangeListener {
+
+    private final CacheManager cacheManager;
+    private final ProductCacheKeyGenerator keyGenerator;
+    private final ResponseBytesCache responseBytesCache;
+    private final ExecutorService evictor = Executors.newSingleThreadExecutor(
+            Thread.ofPlatform().name("product-change-evictor").daemon().factory());
+
+    public ProductChangeInvalidator(CacheManager cacheManager,
+                                    ProductCacheKeyGenerator keyGenerator,
+                                    ResponseBytesCache responseBytesCache,
+                                    StockAvailabilityIndex availabilityIndex) {
+        this.cacheManager = cacheManager;
+        this.keyGenerator = keyGenerator;
+        this.responseBytesCache = responseBytesCache;
+        if (availabilityIndex.isEnabled()) {
+            availabilityIndex.addChangeListener(this);
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        evictor.shutdownNow();
+    }
+
+    @Override
+    public void onChange(long productId) {
+        // Stock only: listing pages check their own stock.
+    }
+
+    @Override
+    public void onReload() {
+        responseBytesCache.invalidateListings();
+    }
+
+    @Override
+    public void onProductChanged(long productId) {
+        responseBytesCache.invalidateListings();
+        evictor.execute(() -> evict(productId));
+    }
+
+    private void evict(long productId) {
+        String key = keyGenerator.keyForProduct(productId);
+        for (String name : new String[]{"product", "product-bytes"}) {
+            Cache cache = cacheManager.getCache(name);
+            if (cache == null) {
+                continue;
+            }
+            try {
+                cache.evict(key);
+            } catch (RuntimeException e) {
+                log.warn("Could not evict changed product: productId={}, cache={}, cause: {}",
+                        productId, name, e.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,267 @@
+package com.retail.inventoryservice.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Per-replica Bloom filter of existing product ids, so lookups for ids that cannot
+ * exist get a 404 without touching the caches (L2 round trip) or the database.
+ *
+ * Rebuilt from the products table on startup and every rebuild-interval; products
+ * inserted in between, by any replica or by ingest, arrive as "product_created"
+ * notifications (V11) on the StockAvailabilityIndex listener connection. That feed is
+ * what makes a negative answer safe, so the filter only answers while the listener is
+ * live, and a reconnect (which may have missed notifications) discards the filter
+ * until a rebuild started after it completes. With the availability index disabled
+ * there is no feed and the filter stays off.
+ *
+ * A Bloom filter has no false negatives, so "definitely absent" is safe to answer
+ * locally. False positives just take the normal path; they are counted when the
+ * database then finds nothing, next to the filter's estimated rate.
+ */
+@Slf4j
+@Component
+public class ProductIdFilter implements StockAvailabilityIndex.ChangeListener {
+
+    private static final String IDS_SQL = "SELECT id FROM products";
+    private static final int MIN_EXPECTED_INSERTIONS = 1024;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final StockAvailabilityIndex availabilityIndex;
+    private final double targetFpp;
+    private final ScheduledExecutorService rebuilder = Executors.newSingleThreadScheduledExecutor(
+            Thread.ofPlatform().name("product-id-filter").daemon().factory());
+
+    private volatile BloomFilter current;
+    private volatile BloomFilter building;
+    private final AtomicInteger reloads = new AtomicInteger();
+
+    private final Counter rejectedProductCounter;
+    private final Counter rejectedStockCounter;
+    private final Counter falsePositiveCounter;
+
+    public ProductIdFilter(JdbcTemplate jdbcTemplate,
+                           StockAvailabilityIndex availabilityIndex,
+                           @Value("${catalog.id-filter.enabled:true}") boolean enabled,
+                           @Value("${catalog.id-filter.target-fpp:0.01}") double targetFpp,
+                           @Value("${catalog.id-filter.rebuild-interval:10m}") Duration rebuildInterval,
+                           MeterRegistry meterRegistry) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.availabilityIndex = availabilityIndex;
+        this.targetFpp = targetFpp;
+
+        this.rejectedProductCounter = Counter.builder("catalog.id_filter.rejections.total")
+                .description("Lookups answered 404 by the product id filter")
+                .tag("operation", "getProduct")
+                .register(meterRegistry);
+        this.rejectedStockCounter = Counter.builder("catalog.id_filter.rejections.total")
+                .description("Lookups answered 404 by the product id filter")
+                .tag("operation", "checkStock")
+                .register(meterRegistry);
+        this.falsePositiveCounter = Counter.builder("catalog.id_filter.false_positives.total")
+                .description("Ids the filter let through that turned out not to exist")
+                .register(meterRegistry);
+        Gauge.builder("catalog.id_filter.fpp.estimated", this,
+                        filter -> filter.current == null ? Double.NaN : filter.current.estimatedFpp())
+                .description("Estimated false-positive probability of the product id filter")
+                .register(meterRegistry);
+
+        if (enabled && !availabilityIndex.isEnabled()) {
+            log.warn("Product id filter needs the availability index for new product ids; leaving it off");
+        } else if (enabled) {
+            availabilityIndex.addChangeListener(this);
+            long intervalMs = rebuildInterval.toMillis();
+            rebuilder.scheduleWithFixedDelay(this::rebuild, 0, intervalMs, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * True only when the id is certainly not a product. Counts the rejection.
+     */
+    public boolean rejectsProduct(long productId) {
+        if (definitelyAbsent(productId)) {
+            rejectedProductCounter.increment();
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Same as rejectsProduct, counted against the stock check path.
+     */
+    public boolean rejectsStockCheck(long productId) {
+        if (definitelyAbsent(productId)) {
+            rejectedStockCounter.increment();
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Call when the database found no product for an id the filter let through.
+     */
+    public void recordMiss(long productId) {
+        BloomFilter filter = current;
+        if (filter != null && filter.mightContain(productId)) {
+            falsePositiveCounter.increment();
+        }
+    }
+
+    @Override
+    public void onChange(long productId) {
+        // Stock changes are for existing products; new ids come through onProductCreated.
+    }
+
+    @Override
+    public void onProductCreated(long productId) {
+        add(productId);
+    }
+
+    @Override
+    public void onReload() {
+        // Inserts committed while the listener was down were never delivered.
+        reloads.incrementAndGet();
+        current = null;
+        rebuilder.execute(this::rebuild);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        rebuilder.shutdownNow();
+    }
+
+    private boolean definitelyAbsent(long productId) {
+        BloomFilter filter = current;
+        if (filter == null || !availabilityIndex.isLive()) {
+            return false;
+        }
+        return !filter.mightContain(productId);
+    }
+
+    private void add(long productId) {
+        // Read building first: if a rebuild swaps in between, the id lands in both.
+        BloomFilter next = building;
+        BloomFilter filter = current;
+        if (next != null) {
+            next.put(productId);
+        }
+        if (filter != null) {
+            filter.put(productId);
+        }
+    }
+
+    private void rebuild() {
+        try {
+            long start = System.nanoTime();
+            int reloadsAtStart = reloads.get();
+            Long count = jdbcTemplate.queryForObject("SELECT count(*) FROM products", Long.class);
+            long expected = Math.max(MIN_EXPECTED_INSERTIONS, (count == null ? 0 : count) * 2);
+            BloomFilter next = new BloomFilter(expected, targetFpp);
+            building = next;
+            jdbcTemplate.query(IDS_SQL, rs -> {
+                next.put(rs.getLong(1));
+            });
+            building = null;
+            if (reloads.get() != reloadsAtStart) {
+                // The listener reconnected mid-build; the rebuild it queued takes over.
+                return;
+            }
+            current = next;
+            log.info("Product id filter rebuilt: {} ids, {} bits, k={}, est. fpp={} in {}ms",
+                    next.insertions(), next.bitSize(), next.hashCount(),
+                    String.format("%.4f", next.estimatedFpp()),
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        } catch (RuntimeException e) {
+            building = null;
+            log.warn("Product id filter rebuild failed, keeping previous filter: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Fixed-size Bloom filter over long keys with lock-free inserts. Uses double hashing
+     * (Kirsch-Mitzenmacher) over two 64-bit mixes of the key.
+     */
+    static final class BloomFilter {
+
+        private final AtomicLongArray bits;
+        private final long bitSize;
+        private final int hashCount;
+        private final AtomicLong insertions = new AtomicLong();
+
+        BloomFilter(long expectedInsertions, double fpp) {
+            long m = (long) Math.ceil(-expectedInsertions * Math.log(fpp) / (Math.log(2) * Math.log(2)));
+            int words = (int) Math.min(Integer.MAX_VALUE - 8, (m + 63) / 64);
+            this.bits = new AtomicLongArray(words);
+            this.bitSize = (long) words * 64;
+            this.hashCount = (int) Math.max(1, Math.min(16, Math.round((double) bitSize / expectedInsertions * Math.log(2))));
+        }
+
+        void put(long key) {
+            long h1 = mix(key);
+            long h2 = mix(h1) | 1;
+            boolean changed = false;
+            for (int i = 0; i < hashCount; i++) {
+                long bit = Math.floorMod(h1 + i * h2, bitSize);
+                int word = (int) (bit >>> 6);
+                long mask = 1L << bit;
+                if ((bits.get(word) & mask) == 0) {
+                    bits.getAndAccumulate(word, mask, (a, b) -> a | b);
+                    changed = true;
+                }
+            }
+            // A rebuild can see an id that was also notified; only count keys that set a bit.
+            if (changed) {
+                insertions.incrementAndGet();
+            }
+        }
+
+        boolean mightContain(long key) {
+            long h1 = mix(key);
+            long h2 = mix(h1) | 1;
+            for (int i = 0; i < hashCount; i++) {
+                long bit = Math.floorMod(h1 + i * h2, bitSize);
+                if ((bits.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /** (1 - e^(-kn/m))^k. */
+        double estimatedFpp() {
+            return Math.pow(1 - Math.exp(-(double) hashCount * insertions.get() / bitSize), hashCount);
+        }
+
+        long insertions() {
+            return insertions.get();
+        }
+
+        long bitSize() {
+            return bitSize;
+        }
+
+        int hashCount() {
+            return hashCount;
+        }
+
+        private static long mix(long z) {
+            z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+            z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+            return z ^ (z >>> 31);
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package com.retail.inventoryservice.service;
+
+/**
+ * Unknown product id. Mapped to 404 by GlobalExceptionHandler and to NOT_FOUND by the
+ * gRPC adapter (it is still an IllegalArgumentException for existing catch blocks).
+ *
+ * No stack trace: these are routine (stale links, bots, id enumeration) and the
+ * ProductIdFilter fast path exists precisely to make them cheap.
+ */
+public class ProductNotFoundException extends IllegalArgumentException {
+
+    public ProductNotFoundException(long productId) {
+        super("Product not found: " + productId);
+    }
+
+    @Override
+    public synchronized Throwable fillInStackTrace() {
+        return this;
+    }
+}
@@ -0,0 +1,190 @@
+package com.retail.inventoryservice.service;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Adaptive concurrency limit in front of InventoryService.reserveStock (REST and gRPC).
+ *
+ * Without it, a slow database turns into a queue on the Hikari pool: every caller
+ * waits up to connection-timeout (30s) for a connection, and order-service threads
+ * pile up behind them. Here a reservation either gets one of `limit` slots right away
+ * or is rejected immediately with a retry-after hint, so the queue never forms.
+ *
+ * The limit follows a gradient rule (as in Netflix's Gradient2 limiter):
+ *   gradient = clamp(TOLERANCE * longRtt / sampleRtt, 0.5, 1)
+ *   newLimit = limit * gradient + sqrt(limit)
+ * longRtt is a slow moving average of call latency (pool wait included, since the
+ * connection is taken inside the call); when calls get slower than that baseline the
+ * limit shrinks, otherwise it grows by a queue allowance of sqrt(limit). Threads
+ * already waiting for a pool connection count as congestion on their own, and a
+ * failed call (pool timeout, DB error) halves the target. Growth is skipped while
+ * less than half the limit is in use, so a quiet period does not inflate it.
+ */
+@Slf4j
+@Component
+public class ReservationLimiter {
+
+    private static final double TOLERANCE = 1.5;
+    private static final double MIN_GRADIENT = 0.5;
+    private static final double SMOOTHING = 0.2;
+    private static final double LONG_RTT_ALPHA = 2.0 / (600 + 1);
+    private static final long MIN_RETRY_AFTER_MS = 50;
+
+    private final boolean enabled;
+    private final int minLimit;
+    private final int maxLimit;
+    private final DataSource dataSource;
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    private volatile double limit;
+    private double longRttNanos;
+    private volatile double lastRttNanos;
+    private HikariPoolMXBean pool;
+
+    private final Counter rejectedCounter;
+    private final Counter droppedCounter;
+
+    public ReservationLimiter(DataSource dataSource,
+                              @Value("${inventory.reservation-limiter.enabled:true}") boolean enabled,
+                              @Value("${inventory.reservation-limiter.initial-limit:10}") int initialLimit,
+                              @Value("${inventory.reservation-limiter.min-limit:2}") int minLimit,
+                              @Value("${inventory.reservation-limiter.max-limit:64}") int maxLimit,
+                              MeterRegistry meterRegistry) {
+        if (minLimit < 1 || maxLimit < minLimit) {
+            throw new IllegalArgumentException("Invalid reservation limiter bounds: min=" + minLimit + ", max=" + maxLimit);
+        }
+        this.dataSource = dataSource;
+        this.enabled = enabled;
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.limit = Math.clamp(initialLimit, minLimit, maxLimit);
+
+        this.rejectedCounter = Counter.builder("inventory.reservation.limiter.rejected.total")
+                .description("Reservations rejected because the concurrency limit was reached")
+                .register(meterRegistry);
+        this.droppedCounter = Counter.builder("inventory.reservation.limiter.dropped.total")
+                .description("Admitted reservations that failed (pool timeout, database error)")
+                .register(meterRegistry);
+        Gauge.builder("inventory.reservation.limiter.limit", this, l -> (int) l.limit)
+                .description("Current adaptive concurrency limit for reservations")
+                .register(meterRegistry);
+        Gauge.builder("inventory.reservation.limiter.inflight", inFlight, AtomicInteger::get)
+                .description("Reservations currently executing")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Runs the reservation if a slot is free, otherwise throws
+     * ReservationRejectedException without touching the database.
+     */
+    public <T> T execute(Supplier<T> reservation) {
+        if (!enabled) {
+            return reservation.get();
+        }
+        int admittedAt = tryAcquire();
+        long start = System.nanoTime();
+        boolean dropped = true;
+        try {
+            T result = reservation.get();
+            dropped = false;
+            return result;
+        } finally {
+            inFlight.decrementAndGet();
+            onSample(System.nanoTime() - start, admittedAt, dropped);
+        }
+    }
+
+    private int tryAcquire() {
+        while (true) {
+            int current = inFlight.get();
+            int currentLimit = (int) limit;
+            if (current >= currentLimit) {
+                rejectedCounter.increment();
+                throw new ReservationRejectedException(currentLimit, retryAfter());
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                return current + 1;
+            }
+        }
+    }
+
+    private synchronized void onSample(long rttNanos, int admittedAt, boolean dropped) {
+        lastRttNanos = rttNanos;
+        if (longRttNanos == 0) {
+            longRttNanos = rttNanos;
+        } else {
+            longRttNanos += (rttNanos - longRttNanos) * LONG_RTT_ALPHA;
+        }
+        // After a slow spell the baseline lags far behind; let it catch up quickly so
+        // the recovered latency is not mistaken for spare capacity for minutes.
+        if (longRttNanos > 2 * rttNanos) {
+            longRttNanos *= 0.95;
+        }
+
+        double current = limit;
+        double gradient = Math.clamp(TOLERANCE * longRttNanos / Math.max(1, rttNanos), MIN_GRADIENT, 1.0);
+        int waiting = threadsAwaitingConnection();
+        if (waiting > 0) {
+            gradient = Math.min(gradient, Math.max(MIN_GRADIENT, current / (current + waiting)));
+        }
+        if (dropped) {
+            droppedCounter.increment();
+            gradient = MIN_GRADIENT;
+        }
+
+        double target = current * gradient + Math.sqrt(current);
+        if (target > current && admittedAt < current / 2) {
+            return;
+        }
+        double next = Math.clamp(current * (1 - SMOOTHING) + target * SMOOTHING, minLimit, maxLimit);
+        if ((int) next != (int) current) {
+            log.debug("Reservation limit {} -> {} (rtt={}ms, longRtt={}ms, poolWaiting={}, dropped={})",
+                    (int) current, (int) next, TimeUnit.NANOSECONDS.toMillis(rttNanos),
+                    TimeUnit.NANOSECONDS.toMillis((long) longRttNanos), waiting, dropped);
+        }
+        limit = next;
+    }
+
+    /**
+     * Roughly the time for one slot to free up: the latest call latency.
+     */
+    private Duration retryAfter() {
+        return Duration.ofMillis(Math.max(MIN_RETRY_AFTER_MS, TimeUnit.NANOSECONDS.toMillis((long) lastRttNanos)));
+    }
+
+    private int threadsAwaitingConnection() {
+        HikariPoolMXBean mxBean = pool;
+        if (mxBean == null) {
+            mxBean = pool = resolvePool();
+            if (mxBean == null) {
+                return 0;
+            }
+        }
+        return mxBean.getThreadsAwaitingConnection();
+    }
+
+    private HikariPoolMXBean resolvePool() {
+        try {
+            if (dataSource.isWrapperFor(HikariDataSource.class)) {
+                return dataSource.unwrap(HikariDataSource.class).getHikariPoolMXBean();
+            }
+        } catch (SQLException e) {
+            log.debug("Hikari pool not available for the reservation limiter: {}", e.getMessage());
+        }
+        return null;
+    }
+}
@@ -0,0 +1,29 @@
+package com.retail.inventoryservice.service;
+
+import java.time.Duration;
+
+/**
+ * A reservation shed by ReservationLimiter before it touched the database. Mapped to
+ * 429 + Retry-After by GlobalExceptionHandler and to RESOURCE_EXHAUSTED (with a retry
+ * pushback trailer) by the gRPC adapter.
+ *
+ * No stack trace: under overload these are thrown at request rate.
+ */
+public class ReservationRejectedException extends IllegalStateException {
+
+    private final Duration retryAfter;
+
+    public ReservationRejectedException(int limit, Duration retryAfter) {
+        super("Reservation capacity exhausted (limit " + limit + "), retry after " + retryAfter.toMillis() + "ms");
+        this.retryAfter = retryAfter;
+    }
+
+    public Duration getRetryAfter() {
+        return retryAfter;
+    }
+
+    @Override
+    public synchronized Throwable fillInStackTrace() {
+        return this;
+    }
+}
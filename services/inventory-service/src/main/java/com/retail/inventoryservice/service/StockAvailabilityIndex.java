@@ -0,0 +1,600 @@
+package com.retail.inventoryservice.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.OptionalInt;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * Per-replica productId -> available units map that answers stock checks without a
+ * DB round trip.
+ *
+ * Loaded from the inventory table on startup, then kept current from two sources:
+ *   - local stock changes, applied right after their transaction commits
+ *   - "inventory_availability" notifications from the V7 trigger, which cover writes
+ *     made by every other replica, bulk ingest and manual SQL
+ *
+ * Each entry carries the row's change_seq, so an update older than what the map
+ * already holds is dropped regardless of which path delivers it first.
+ *
+ * The map is only consulted while the listener connection is healthy; during a
+ * reconnect (LISTEN, then a fresh snapshot) lookups fall back to the database.
+ * A lookup miss also falls back, so a row inserted a moment ago is never reported
+ * as unknown.
+ *
+ * Applied changes are also pushed to registered ChangeListeners (WatchStock streams,
+ * the inventory-availability topic publisher), as are new product ids from the
+ * "product_created" channel (V11) for the product id filter and catalog edits from
+ * the "product_changed" channel (V15) for the response caches.
+ *
+ * The listener connection also competes for a session-level advisory lock; the one
+ * replica holding it is the leader, which is how the topic publisher gets exactly one
+ * active instance. The lock goes away with the session, so a dead leader is replaced
+ * within one leader poll.
+ */
+@Slf4j
+@Component
+public class StockAvailabilityIndex implements SmartLifecycle {
+
+    private static final String CHANNEL = "inventory_availability";
+    private static final String PRODUCT_CHANNEL = "product_created";
+    private static final String PRODUCT_CHANGED_CHANNEL = "product_changed";
+    private static final String SNAPSHOT_SQL =
+            "SELECT product_id, quantity - reserved, change_seq FROM inventory";
+    private static final String CURRENT_SQL =
+            "SELECT quantity - reserved, change_seq FROM inventory WHERE product_id = ?";
+    private static final long RECONNECT_BACKOFF_MS = 1000;
+    private static final long LEADER_POLL_NANOS = TimeUnit.SECONDS.toNanos(5);
+    private static final String TRY_LEADERSHIP_SQL =
+            "SELECT pg_try_advisory_lock(" + AdvisoryLocks.NAMESPACE + ", " + AdvisoryLocks.AVAILABILITY_LEADER + ")";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final boolean enabled;
+    private final String url;
+    private final String username;
+    private final String password;
+    private final int pollTimeoutMs;
+
+    private final StampedLock lock = new StampedLock();
+    private Table table = new Table(1024);
+    private final List<ChangeListener> changeListeners = new CopyOnWriteArrayList<>();
+
+    private volatile boolean live;
+    private volatile boolean leader;
+    private volatile boolean running;
+    private volatile long lastSyncNanos = System.nanoTime();
+    private volatile Connection listenerConnection;
+    private Thread listenerThread;
+
+    private final Counter indexLookupCounter;
+    private final Counter databaseLookupCounter;
+    private final Counter notificationsAppliedCounter;
+    private final Counter notificationsSkippedCounter;
+    private final Timer propagationLagTimer;
+
+    public StockAvailabilityIndex(JdbcTemplate jdbcTemplate,
+                                  @Value("${inventory.availability-index.enabled:true}") boolean enabled,
+                                  @Value("${inventory.availability-index.poll-timeout-ms:500}") int pollTimeoutMs,
+                                  @Value("${spring.datasource.url}") String url,
+                                  @Value("${spring.datasource.username}") String username,
+                                  @Value("${spring.datasource.password}") String password,
+                                  MeterRegistry meterRegistry) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.enabled = enabled;
+        this.pollTimeoutMs = pollTimeoutMs;
+        this.url = url;
+        this.username = username;
+        this.password = password;
+
+        this.indexLookupCounter = Counter.builder("inventory.availability.lookups.total")
+                .description("Stock checks by where they were answered")
+                .tag("source", "index")
+                .register(meterRegistry);
+        this.databaseLookupCounter = Counter.builder("inventory.availability.lookups.total")
+                .description("Stock checks by where they were answered")
+                .tag("source", "database")
+                .register(meterRegistry);
+        this.notificationsAppliedCounter = Counter.builder("inventory.availability.updates.total")
+                .description("Availability updates received by the index")
+                .tag("result", "applied")
+                .register(meterRegistry);
+        this.notificationsSkippedCounter = Counter.builder("inventory.availability.updates.total")
+                .description("Availability updates received by the index")
+                .tag("result", "outdated")
+                .register(meterRegistry);
+        this.propagationLagTimer = Timer.builder("inventory.availability.propagation.lag")
+                .description("Time from the inventory row write to the NOTIFY being applied here")
+                .register(meterRegistry);
+        Gauge.builder("inventory.availability.staleness.seconds", this,
+                        index -> (System.nanoTime() - index.lastSyncNanos) / 1e9)
+                .description("Seconds since the index last confirmed it was in sync with the database")
+                .register(meterRegistry);
+        Gauge.builder("inventory.availability.entries", this, index -> index.size())
+                .description("Products held in the availability index")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Receives product ids whose availability changed, on the thread that applied the
+     * change. Implementations must only record the id and return.
+     */
+    public interface ChangeListener {
+
+        void onChange(long productId);
+
+        /** The whole table was reloaded after a reconnect; any product may have changed. */
+        void onReload();
+
+        /** This replica just became the leader (see class comment). */
+        default void onLeadershipAcquired() {
+        }
+
+        /** A products row was inserted (V11 trigger), with or without an inventory row. */
+        default void onProductCreated(long productId) {
+        }
+
+        /** A product's catalog fields changed or the product was deleted (V15 trigger). */
+        default void onProductChanged(long productId) {
+        }
+    }
+
+    /**
+     * A product's availability as held by the index; available is -1 once its inventory
+     * row has been deleted.
+     */
+    public record Entry(long productId, int available, long changeSeq) {}
+
+    public void addChangeListener(ChangeListener listener) {
+        changeListeners.add(listener);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Whether lookups are answered from the map (listener connected, snapshot loaded).
+     */
+    public boolean isLive() {
+        return live;
+    }
+
+    public boolean isLeader() {
+        return leader;
+    }
+
+    /**
+     * Current entry for the product, without touching the lookup metrics.
+     */
+    public Optional<Entry> peek(long productId) {
+        long stamp = lock.readLock();
+        try {
+            return table.entry(productId);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Copy of every entry, for full re-publication.
+     */
+    public List<Entry> entries() {
+        long stamp = lock.readLock();
+        try {
+            return table.entries();
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Available units for the product, or empty when the caller must ask the database
+     * (index not live yet, or the product is not in the map).
+     */
+    public OptionalInt lookup(long productId) {
+        OptionalInt available = current(productId);
+        if (available.isPresent()) {
+            indexLookupCounter.increment();
+        } else {
+            databaseLookupCounter.increment();
+        }
+        return available;
+    }
+
+    /**
+     * As lookup, without touching the lookup metrics: for validating cached copies of
+     * the stock (listing pages), which are not stock checks.
+     */
+    public OptionalInt current(long productId) {
+        if (!live) {
+            return OptionalInt.empty();
+        }
+        long stamp = lock.tryOptimisticRead();
+        int available = table.get(productId);
+        if (!lock.validate(stamp)) {
+            stamp = lock.readLock();
+            try {
+                available = table.get(productId);
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+        return available == Table.ABSENT ? OptionalInt.empty() : OptionalInt.of(available);
+    }
+
+    /**
+     * Call inside the transaction that changed the product's stock. Reads the row as
+     * this transaction left it (it still holds the row lock) and applies it after
+     * commit, so this replica sees its own writes before the NOTIFY round trip.
+     */
+    public void recordLocalChange(long productId) {
+        if (!enabled || !TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+        jdbcTemplate.query(CURRENT_SQL, rs -> {
+            applyAfterCommit(productId, rs.getInt(1), rs.getLong(2));
+        }, productId);
+    }
+
+    /**
+     * Same as recordLocalChange(productId), for writers that already know the resulting
+     * availability and its sequence value (the ledger stock store).
+     */
+    public void recordLocalChange(long productId, int available, long seq) {
+        if (!enabled || !TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+        applyAfterCommit(productId, available, seq);
+    }
+
+    private void applyAfterCommit(long productId, int available, long seq) {
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                apply(productId, available, seq);
+            }
+        });
+    }
+
+    private int size() {
+        long stamp = lock.readLock();
+        try {
+            return table.size;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    private boolean apply(long productId, int available, long seq) {
+        boolean applied;
+        long stamp = lock.writeLock();
+        try {
+            if (table.isFull()) {
+                table = table.grow();
+            }
+            applied = table.put(productId, available, seq);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+        if (applied) {
+            for (ChangeListener listener : changeListeners) {
+                listener.onChange(productId);
+            }
+        }
+        return applied;
+    }
+
+    // ---- listener -------------------------------------------------------------------
+
+    @Override
+    public void start() {
+        if (!enabled) {
+            log.info("Stock availability index disabled, stock checks go to the database");
+            return;
+        }
+        running = true;
+        listenerThread = Thread.ofPlatform()
+                .name("inventory-availability-listener")
+                .daemon()
+                .start(this::listen);
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        live = false;
+        leader = false;
+        if (listenerThread != null) {
+            listenerThread.interrupt();
+        }
+        closeQuietly(listenerConnection);
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    private void listen() {
+        while (running) {
+            try (Connection connection = DriverManager.getConnection(url, username, password)) {
+                listenerConnection = connection;
+                connection.setAutoCommit(true);
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute("LISTEN " + CHANNEL);
+                    statement.execute("LISTEN " + PRODUCT_CHANNEL);
+                    statement.execute("LISTEN " + PRODUCT_CHANGED_CHANNEL);
+                }
+                // LISTEN first: anything committed while the snapshot loads is queued on
+                // this connection and replayed below, and change_seq drops what is older.
+                loadSnapshot(connection);
+                PGConnection pgConnection = connection.unwrap(PGConnection.class);
+                long nextLeaderAttempt = System.nanoTime();
+                while (running) {
+                    if (!leader && System.nanoTime() - nextLeaderAttempt >= 0) {
+                        tryAcquireLeadership(connection);
+                        nextLeaderAttempt = System.nanoTime() + LEADER_POLL_NANOS;
+                    }
+                    PGNotification[] notifications = pgConnection.getNotifications(pollTimeoutMs);
+                    if (notifications != null) {
+                        for (PGNotification notification : notifications) {
+                            if (PRODUCT_CHANNEL.equals(notification.getName())) {
+                                onProductCreated(notification.getParameter());
+                            } else if (PRODUCT_CHANGED_CHANNEL.equals(notification.getName())) {
+                                onProductChanged(notification.getParameter());
+                            } else {
+                                onNotification(notification.getParameter());
+                            }
+                        }
+                    }
+                    lastSyncNanos = System.nanoTime();
+                }
+            } catch (SQLException e) {
+                live = false;
+                leader = false;
+                if (running) {
+                    log.warn("Availability listener lost its connection, falling back to DB: {}", e.getMessage());
+                    sleepBeforeReconnect();
+                }
+            } finally {
+                listenerConnection = null;
+            }
+        }
+    }
+
+    private void tryAcquireLeadership(Connection connection) throws SQLException {
+        try (Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery(TRY_LEADERSHIP_SQL)) {
+            if (rs.next() && rs.getBoolean(1)) {
+                leader = true;
+                log.info("Availability index is now the leader replica");
+                for (ChangeListener listener : changeListeners) {
+                    listener.onLeadershipAcquired();
+                }
+            }
+        }
+    }
+
+    private void loadSnapshot(Connection connection) throws SQLException {
+        long start = System.nanoTime();
+        Table snapshot = new Table(1024);
+        try (Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery(SNAPSHOT_SQL)) {
+            while (rs.next()) {
+                if (snapshot.isFull()) {
+                    snapshot = snapshot.grow();
+                }
+                snapshot.put(rs.getLong(1), rs.getInt(2), rs.getLong(3));
+            }
+        }
+        long stamp = lock.writeLock();
+        try {
+            table = snapshot;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+        lastSyncNanos = System.nanoTime();
+        // Live before onReload, so listeners re-reading the table see the new snapshot.
+        live = true;
+        for (ChangeListener listener : changeListeners) {
+            listener.onReload();
+        }
+        log.info("Availability index loaded: {} products in {}ms",
+                snapshot.size, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+    }
+
+    private void onProductCreated(String payload) {
+        long productId;
+        try {
+            productId = Long.parseLong(payload);
+        } catch (NumberFormatException e) {
+            log.warn("Ignoring malformed product notification: {}", payload);
+            return;
+        }
+        for (ChangeListener listener : changeListeners) {
+            listener.onProductCreated(productId);
+        }
+    }
+
+    private void onProductChanged(String payload) {
+        long productId;
+        try {
+            productId = Long.parseLong(payload);
+        } catch (NumberFormatException e) {
+            log.warn("Ignoring malformed product change notification: {}", payload);
+            return;
+        }
+        for (ChangeListener listener : changeListeners) {
+            listener.onProductChanged(productId);
+        }
+    }
+
+    private void onNotification(String payload) {
+        String[] parts = payload.split(":");
+        if (parts.length != 4) {
+            log.warn("Ignoring malformed availability notification: {}", payload);
+            return;
+        }
+        long productId = Long.parseLong(parts[0]);
+        int available = Integer.parseInt(parts[1]);
+        long seq = Long.parseLong(parts[2]);
+        long writtenAtMillis = Long.parseLong(parts[3]);
+
+        if (apply(productId, available, seq)) {
+            notificationsAppliedCounter.increment();
+        } else {
+            notificationsSkippedCounter.increment();
+        }
+        // DB and app clocks are both NTP-synced; a negative lag is skew, not a sample.
+        long lagMillis = System.currentTimeMillis() - writtenAtMillis;
+        if (lagMillis >= 0) {
+            propagationLagTimer.record(lagMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void sleepBeforeReconnect() {
+        try {
+            Thread.sleep(RECONNECT_BACKOFF_MS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            running = false;
+        }
+    }
+
+    private static void closeQuietly(Connection connection) {
+        if (connection == null) {
+            return;
+        }
+        try {
+            connection.close();
+        } catch (SQLException e) {
+            log.debug("Error closing availability listener connection: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Open-addressing long -> int table (linear probing, load factor 1/2). Keys are
+     * product ids, which are always positive, so 0 marks an empty slot. Entries are
+     * never removed; a deleted inventory row is stored as ABSENT.
+     */
+    private static final class Table {
+
+        static final int ABSENT = -1;
+        private static final long EMPTY = 0L;
+
+        final long[] keys;
+        final int[] values;
+        final long[] seqs;
+        int size;
+
+        Table(int capacity) {
+            keys = new long[capacity];
+            values = new int[capacity];
+            seqs = new long[capacity];
+        }
+
+        int get(long key) {
+            int mask = keys.length - 1;
+            int slot = slot(key, mask);
+            for (int probes = 0; probes <= mask; probes++) {
+                long k = keys[slot];
+                if (k == key) {
+                    return values[slot];
+                }
+                if (k == EMPTY) {
+                    return ABSENT;
+                }
+                slot = (slot + 1) & mask;
+            }
+            return ABSENT;
+        }
+
+        Optional<Entry> entry(long key) {
+            int mask = keys.length - 1;
+            int slot = slot(key, mask);
+            for (int probes = 0; probes <= mask; probes++) {
+                long k = keys[slot];
+                if (k == key) {
+                    return Optional.of(new Entry(key, values[slot], seqs[slot]));
+                }
+                if (k == EMPTY) {
+                    return Optional.empty();
+                }
+                slot = (slot + 1) & mask;
+            }
+            return Optional.empty();
+        }
+
+        List<Entry> entries() {
+            List<Entry> entries = new ArrayList<>(size);
+            for (int i = 0; i < keys.length; i++) {
+                if (keys[i] != EMPTY) {
+                    entries.add(new Entry(keys[i], values[i], seqs[i]));
+                }
+            }
+            return entries;
+        }
+
+        /**
+         * Stores the value unless the table already holds the same or a newer change.
+         */
+        boolean put(long key, int value, long seq) {
+            int mask = keys.length - 1;
+            int slot = slot(key, mask);
+            while (keys[slot] != EMPTY && keys[slot] != key) {
+                slot = (slot + 1) & mask;
+            }
+            if (keys[slot] == key) {
+                if (seqs[slot] >= seq) {
+                    return false;
+                }
+            } else {
+                size++;
+            }
+            values[slot] = value < 0 ? ABSENT : value;
+            seqs[slot] = seq;
+            keys[slot] = key;
+            return true;
+        }
+
+        boolean isFull() {
+            return (size + 1) * 2 > keys.length;
+        }
+
+        Table grow() {
+            Table bigger = new Table(keys.length * 2);
+            for (int i = 0; i < keys.length; i++) {
+                if (keys[i] != EMPTY) {
+                    bigger.put(keys[i], values[i], seqs[i]);
+                }
+            }
+            return bigger;
+        }
+
+        private static int slot(long key, int mask) {
+            return (int) ((key * 0x9E3779B97F4A7C15L) >>> 32) & mask;
+        }
+    }
+}
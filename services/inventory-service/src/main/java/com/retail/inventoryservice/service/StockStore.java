@@ -0,0 +1,32 @@
+package com.retail.inventoryservice.service;
+
+/**
+ * Where stock mutations are written. Selected by inventory.stock-mode:
+ *   in-place (default): conditional UPDATEs of the inventory row (InPlaceStockStore)
+ *   ledger:             appends to stock_movements, folded by LedgerCompactor (LedgerStockStore)
+ *
+ * Both enforce the same invariant: after a movement, available (quantity - reserved)
+ * and reserved are never negative. All methods must run inside the caller's
+ * transaction and return false when the movement would break the invariant.
+ *
+ * Switching from ledger back to in-place requires a final compaction first (stop
+ * traffic, let LedgerCompactor run once), or unfolded movements are ignored.
+ */
+public interface StockStore {
+
+    boolean reserve(Long orderId, Long productId, int quantity);
+
+    boolean confirm(Long orderId, Long productId, int quantity);
+
+    boolean release(Long orderId, Long productId, int quantity);
+
+    /**
+     * Called by bulk writers that set absolute stock levels on the inventory row,
+     * inside their transaction, right before that write.
+     *
+     * @param newLevelsSql query returning (product_id, quantity) for every row the
+     *                     write is about to set
+     */
+    default void beforeAbsoluteStockWrite(String newLevelsSql) {
+    }
+}
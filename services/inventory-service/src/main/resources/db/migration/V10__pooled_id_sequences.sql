@@ -0,0 +1,4 @@
+-- INCREMENT must equal the entities' allocationSize (50, Hibernate pooled optimizer).
+ALTER SEQUENCE products_id_seq INCREMENT BY 50;
+ALTER SEQUENCE inventory_id_seq INCREMENT BY 50;
+ALTER SEQUENCE failed_events_id_seq INCREMENT BY 50;
@@ -0,0 +1,21 @@
+-- =============================================================================
+-- V11: Broadcast new product ids over LISTEN/NOTIFY
+-- =============================================================================
+-- ProductIdFilter answers 404 for ids it has never seen, so it must hear about
+-- every product insert, not only those that come with an inventory row (ingest
+-- skips the inventory row when quantity is null). Delivered at commit on the
+-- same listener connection as "inventory_availability" (V7).
+--
+-- Payload: product_id
+-- =============================================================================
+
+CREATE FUNCTION notify_product_created() RETURNS trigger AS $$
+BEGIN
+    PERFORM pg_notify('product_created', NEW.id::text);
+    RETURN NEW;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE TRIGGER trg_product_created
+    AFTER INSERT ON products
+    FOR EACH ROW EXECUTE FUNCTION notify_product_created();
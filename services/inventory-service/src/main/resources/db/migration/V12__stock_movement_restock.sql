@@ -0,0 +1,18 @@
+-- =============================================================================
+-- V12: RESTOCK movements and ledger retention
+-- =============================================================================
+-- Bulk ingest sets absolute stock levels. In ledger mode it now records each
+-- change as a RESTOCK movement (quantity_delta = new level - effective level),
+-- so the ledger accounts for every unit and not only reservations. The
+-- inventory write itself applies the delta, so these rows are created already
+-- folded (at or below stock_ledger_state.position).
+--
+-- LedgerCompactor deletes folded movements older than
+-- inventory.ledger.retention; created_at is indexed for that scan.
+-- =============================================================================
+
+ALTER TABLE stock_movements DROP CONSTRAINT chk_stock_movements_type;
+ALTER TABLE stock_movements ADD CONSTRAINT chk_stock_movements_type
+    CHECK (movement_type IN ('RESERVE', 'CONFIRM', 'RELEASE', 'RESTOCK'));
+
+CREATE INDEX idx_stock_movements_created_at ON stock_movements(created_at);
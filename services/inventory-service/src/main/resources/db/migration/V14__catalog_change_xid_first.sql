@@ -0,0 +1,17 @@
+-- =============================================================================
+-- V14: Assign the writer's transaction id before stamping change_seq
+-- =============================================================================
+-- CatalogChangeService caps the watermark it hands out at a sequence value read
+-- before a snapshot whose in-progress transactions have all finished. That only
+-- holds if every transaction owns an xid before it draws a change_seq; a
+-- BEFORE trigger can run ahead of the row write that would assign it.
+-- =============================================================================
+
+CREATE OR REPLACE FUNCTION stamp_catalog_change() RETURNS trigger AS $$
+BEGIN
+    PERFORM pg_current_xact_id();
+    NEW.change_seq := nextval('catalog_change_seq');
+    NEW.updated_at := clock_timestamp();
+    RETURN NEW;
+END;
+$$ LANGUAGE plpgsql;
@@ -0,0 +1,34 @@
+-- =============================================================================
+-- V15: Broadcast catalog edits over LISTEN/NOTIFY
+-- =============================================================================
+-- Rendered listing pages are only re-checked against stock, so a price, name or
+-- deactivation change made outside ingest (admin SQL, another tool) would keep
+-- being served until the cache TTL. Every replica hears this on the
+-- availability listener connection (V7) and drops its listing pages and the
+-- product's cached entries. Stock-only writes (change_seq/updated_at from V6)
+-- do not fire it.
+--
+-- Payload: product_id
+-- =============================================================================
+
+CREATE FUNCTION notify_product_changed() RETURNS trigger AS $$
+BEGIN
+    IF TG_OP = 'DELETE' THEN
+        PERFORM pg_notify('product_changed', OLD.id::text);
+        RETURN OLD;
+    END IF;
+    PERFORM pg_notify('product_changed', NEW.id::text);
+    RETURN NEW;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE TRIGGER trg_product_changed
+    AFTER UPDATE ON products
+    FOR EACH ROW
+    WHEN (ROW(OLD.sku, OLD.name, OLD.description, OLD.price, OLD.category, OLD.image_url, OLD.active)
+          IS DISTINCT FROM ROW(NEW.sku, NEW.name, NEW.description, NEW.price, NEW.category, NEW.image_url, NEW.active))
+    EXECUTE FUNCTION notify_product_changed();
+
+CREATE TRIGGER trg_product_deleted
+    AFTER DELETE ON products
+    FOR EACH ROW EXECUTE FUNCTION notify_product_changed();
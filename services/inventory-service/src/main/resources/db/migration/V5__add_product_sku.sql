@@ -0,0 +1,11 @@
+-- =============================================================================
+-- V5: Product SKU (natural key for bulk catalog ingest)
+-- =============================================================================
+-- Bulk loads upsert products with INSERT ... ON CONFLICT, which needs a stable
+-- external key. Existing rows keep a NULL sku (a unique index allows many NULLs)
+-- until a catalog load assigns one.
+-- =============================================================================
+
+ALTER TABLE products ADD COLUMN sku VARCHAR(64);
+
+CREATE UNIQUE INDEX idx_products_sku ON products(sku);
@@ -0,0 +1,41 @@
+-- =============================================================================
+-- V6: Change tracking for catalog delta sync
+-- =============================================================================
+-- Consumers mirroring the catalog ask "what changed since watermark X".
+--
+-- Why a sequence instead of updated_at as the watermark?
+--   Stock moves through conditional bulk UPDATEs (reserve/confirm/release) that
+--   never fire JPA's @PreUpdate, so inventory.updated_at is not maintained, and
+--   timestamps tie. A trigger stamps every INSERT/UPDATE with the next value of
+--   one shared sequence (and refreshes updated_at), giving a strictly increasing
+--   watermark across both tables regardless of which code path wrote the row.
+--
+-- Deactivations (active = false) are ordinary changes and act as tombstones.
+-- =============================================================================
+
+CREATE SEQUENCE catalog_change_seq;
+
+ALTER TABLE products  ADD COLUMN change_seq BIGINT NOT NULL DEFAULT 0;
+ALTER TABLE inventory ADD COLUMN change_seq BIGINT NOT NULL DEFAULT 0;
+
+UPDATE products  SET change_seq = nextval('catalog_change_seq');
+UPDATE inventory SET change_seq = nextval('catalog_change_seq');
+
+CREATE FUNCTION stamp_catalog_change() RETURNS trigger AS $$
+BEGIN
+    NEW.change_seq := nextval('catalog_change_seq');
+    NEW.updated_at := clock_timestamp();
+    RETURN NEW;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE TRIGGER trg_products_catalog_change
+    BEFORE INSERT OR UPDATE ON products
+    FOR EACH ROW EXECUTE FUNCTION stamp_catalog_change();
+
+CREATE TRIGGER trg_inventory_catalog_change
+    BEFORE INSERT OR UPDATE ON inventory
+    FOR EACH ROW EXECUTE FUNCTION stamp_catalog_change();
+
+CREATE INDEX idx_products_change_seq  ON products(change_seq);
+CREATE INDEX idx_inventory_change_seq ON inventory(change_seq);
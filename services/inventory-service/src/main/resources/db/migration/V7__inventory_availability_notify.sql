@@ -0,0 +1,43 @@
+-- =============================================================================
+-- V7: Broadcast availability changes over LISTEN/NOTIFY
+-- =============================================================================
+-- Every replica keeps an in-memory productId -> available map for stock checks
+-- (StockAvailabilityIndex). This trigger publishes each change to the
+-- "inventory_availability" channel; Postgres delivers notifications at commit,
+-- in commit order, so rolled-back reservations are never broadcast.
+--
+-- Payload: product_id:available:change_seq:epoch_millis
+--   change_seq (stamped by the V6 BEFORE trigger) lets listeners discard a
+--   notification older than what they already hold; epoch_millis is the write
+--   time, used for the propagation-lag metric. A deleted row is sent with
+--   available = -1.
+-- =============================================================================
+
+CREATE FUNCTION notify_inventory_availability() RETURNS trigger AS $$
+BEGIN
+    IF TG_OP = 'DELETE' THEN
+        PERFORM pg_notify('inventory_availability',
+            OLD.product_id || ':-1:' || nextval('catalog_change_seq') || ':'
+            || (extract(epoch FROM clock_timestamp()) * 1000)::bigint);
+        RETURN OLD;
+    END IF;
+    PERFORM pg_notify('inventory_availability',
+        NEW.product_id || ':' || (NEW.quantity - NEW.reserved) || ':' || NEW.change_seq || ':'
+        || (extract(epoch FROM clock_timestamp()) * 1000)::bigint);
+    RETURN NEW;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE TRIGGER trg_inventory_availability_insert
+    AFTER INSERT ON inventory
+    FOR EACH ROW EXECUTE FUNCTION notify_inventory_availability();
+
+CREATE TRIGGER trg_inventory_availability_update
+    AFTER UPDATE OF quantity, reserved ON inventory
+    FOR EACH ROW
+    WHEN (OLD.quantity - OLD.reserved IS DISTINCT FROM NEW.quantity - NEW.reserved)
+    EXECUTE FUNCTION notify_inventory_availability();
+
+CREATE TRIGGER trg_inventory_availability_delete
+    AFTER DELETE ON inventory
+    FOR EACH ROW EXECUTE FUNCTION notify_inventory_availability();
@@ -0,0 +1,45 @@
+-- =============================================================================
+-- V8: Append-only stock movement ledger (inventory.stock-mode = ledger)
+-- =============================================================================
+-- In ledger mode, reserve / confirm / release INSERT a movement here
+-- instead of UPDATE-ing inventory.quantity / reserved. The inventory row becomes
+-- a snapshot, and LedgerCompactor periodically folds movements into it:
+--
+--   effective stock = inventory snapshot
+--                   + SUM(deltas of movements with id > stock_ledger_state.position)
+--
+-- Why?
+--   Every in-place UPDATE leaves a dead tuple on the hottest rows in the table,
+--   and the hot-SKU row is rewritten once per movement. Appends write fresh
+--   tuples, and the compactor rewrites each touched inventory row once per batch.
+--   The ledger also gives a full audit trail of who moved which stock, and why.
+--
+-- Movement ids come from catalog_change_seq so they order against inventory
+-- change_seq values in the availability index. Movements are never deleted
+-- (retention / partitioning can be added when the audit horizon is decided).
+-- =============================================================================
+
+CREATE TABLE stock_movements (
+    id              BIGINT      PRIMARY KEY DEFAULT nextval('catalog_change_seq'),
+    product_id      BIGINT      NOT NULL REFERENCES products(id),
+    order_id        BIGINT,
+    movement_type   VARCHAR(16) NOT NULL,
+    quantity_delta  INTEGER     NOT NULL,
+    reserved_delta  INTEGER     NOT NULL,
+    created_at      TIMESTAMP   NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    CONSTRAINT chk_stock_movements_type
+        CHECK (movement_type IN ('RESERVE', 'CONFIRM', 'RELEASE'))
+);
+
+-- Unfolded deltas of one product: product_id = ? AND id > position
+CREATE INDEX idx_stock_movements_product_id ON stock_movements(product_id, id);
+CREATE INDEX idx_stock_movements_order_id ON stock_movements(order_id) WHERE order_id IS NOT NULL;
+
+-- Single row: every movement with id <= position is folded into inventory.
+CREATE TABLE stock_ledger_state (
+    singleton       BOOLEAN     PRIMARY KEY DEFAULT true CHECK (singleton),
+    position        BIGINT      NOT NULL,
+    compacted_at    TIMESTAMP   NOT NULL DEFAULT CURRENT_TIMESTAMP
+);
+
+INSERT INTO stock_ledger_state (position) VALUES (0);
@@ -0,0 +1,10 @@
+-- Transactional outbox: events written in the business transaction, published to Kafka
+-- by OutboxRelay and deleted once acked. Rows only live between commit and publish.
+CREATE TABLE outbox (
+    id          BIGSERIAL     PRIMARY KEY,
+    topic       VARCHAR(255)  NOT NULL,
+    event_key   VARCHAR(255),
+    event_type  VARCHAR(255)  NOT NULL,
+    payload     JSONB         NOT NULL,
+    created_at  TIMESTAMP     NOT NULL DEFAULT NOW()
+);
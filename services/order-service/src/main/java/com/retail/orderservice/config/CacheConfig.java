@@ -1,9 +1,9 @@
 package com.retail.orderservice.config;
 
 import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.springframework.cache.CacheManager;
 import org.springframework.cache.caffeine.CaffeineCacheManager;
-import org.springframework.cache.support.CompositeCacheManager;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.data.redis.cache.RedisCacheConfiguration;
@@ -13,12 +13,21 @@ import org.springframework.data.redis.serializer.GenericJacksonJsonRedisSerializ
 import org.springframework.data.redis.serializer.RedisSerializationContext.SerializationPair;
 
 import java.time.Duration;
+import java.util.Set;
 
+/**
+ * Two tiers per cache: Caffeine (5s, per pod) in front of Dragonfly (shared across
+ * pods and restarts). See TieredCache for read promotion and write/evict on both tiers.
+ */
 @Configuration
 public class CacheConfig {
 
+    /** Dragonfly key prefix and TTL; OrderCache writes the "order" entries itself. */
+    public static final String L2_KEY_PREFIX = "order-service:";
+    public static final Duration L2_TTL = Duration.ofMinutes(5);
+
     @Bean
-    public CacheManager cacheManager(RedisConnectionFactory redisConnectionFactory) {
+    public CacheManager cacheManager(RedisConnectionFactory redisConnectionFactory, MeterRegistry meterRegistry) {
         CaffeineCacheManager l1 = new CaffeineCacheManager("order");
         l1.setCaffeine(Caffeine.newBuilder()
                 .maximumSize(500)
@@ -26,8 +35,8 @@ public class CacheConfig {
                 .recordStats());
 
         RedisCacheConfiguration redisConfig = RedisCacheConfiguration.defaultCacheConfig()
-                .entryTtl(Duration.ofMinutes(5))
-                .computePrefixWith(name -> "order-service:" + name + "::")
+                .entryTtl(L2_TTL)
+                .computePrefixWith(name -> L2_KEY_PREFIX + name + "::")
                 .serializeValuesWith(
                         SerializationPair.fromSerializer(GenericJacksonJsonRedisSerializer.builder().build()));
 
@@ -35,6 +44,6 @@ public class CacheConfig {
                 .cacheDefaults(redisConfig)
                 .build();
 
-        return new CompositeCacheManager(l1, l2);
+        return new TieredCacheManager(l1, l2, meterRegistry, Set.of("order"));
     }
 }
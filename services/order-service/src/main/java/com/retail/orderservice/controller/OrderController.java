@@ -1,39 +1,102 @@
 package com.retail.orderservice.controller;
 
+import com.retail.orderservice.dto.CartValidationResponse;
 import com.retail.orderservice.dto.CreateOrderRequest;
+import com.retail.orderservice.dto.OrderHistoryPage;
 import com.retail.orderservice.dto.OrderResponse;
+import com.retail.orderservice.dto.OrderSummary;
+import com.retail.orderservice.dto.ValidateCartRequest;
+import com.retail.orderservice.service.CartValidationService;
+import com.retail.orderservice.service.OrderHistoryQueryService;
+import com.retail.orderservice.service.OrderIdempotencyStore;
 import com.retail.orderservice.service.OrderService;
+import com.retail.orderservice.service.StockAvailabilityView;
 import jakarta.validation.Valid;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
 
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+/**
+ * Order GETs carry strong ETags built from the Order @Version (plus the API version),
+ * taken from the cached OrderResponse. Spring answers a matching If-None-Match with
+ * 304, so frontend polling of order status is header-only until the status changes.
+ */
 @RestController
 @RequestMapping("/api/orders")
 public class OrderController {
 
+    private static final String API_VERSION = "1";
+
     private final OrderService orderService;
+    private final OrderHistoryQueryService orderHistoryQueryService;
+    private final StockAvailabilityView stockAvailabilityView;
+    private final CartValidationService cartValidationService;
+    private final OrderIdempotencyStore orderIdempotencyStore;
 
-    public OrderController(OrderService orderService) {
+    public OrderController(OrderService orderService,
+                           OrderHistoryQueryService orderHistoryQueryService,
+                           StockAvailabilityView stockAvailabilityView,
+                           CartValidationService cartValidationService,
+                           OrderIdempotencyStore orderIdempotencyStore) {
         this.orderService = orderService;
+        this.orderHistoryQueryService = orderHistoryQueryService;
+        this.stockAvailabilityView = stockAvailabilityView;
+        this.cartValidationService = cartValidationService;
+        this.orderIdempotencyStore = orderIdempotencyStore;
     }
 
+    /**
+     * With an Idempotency-Key header, a retried submission returns the order the first
+     * one created instead of creating another (see OrderIdempotencyStore).
+     */
     @PostMapping(version = "1")
     public ResponseEntity<OrderResponse> createOrder(
             Authentication authentication,
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey,
             @Valid @RequestBody CreateOrderRequest request) {
         String userEmail = authentication.getName();
-        OrderResponse response = orderService.createOrder(userEmail, request);
+        OrderResponse response = idempotencyKey == null
+                ? placeOrder(userEmail, request)
+                : orderIdempotencyStore.execute(userEmail, idempotencyKey, request,
+                        () -> placeOrder(userEmail, request));
         return ResponseEntity.status(HttpStatus.CREATED).body(response);
     }
 
+    private OrderResponse placeOrder(String userEmail, CreateOrderRequest request) {
+        // Outside createOrder's transaction: a doomed cart never opens a DB connection.
+        stockAvailabilityView.preValidate(request.items());
+        return orderService.createOrder(userEmail, request);
+    }
+
+    /**
+     * Checkout dry run: per-line stock and price issues, nothing written. Cheap enough
+     * for the cart page to call on every change.
+     */
+    @PostMapping(path = "/validate", version = "1")
+    public ResponseEntity<CartValidationResponse> validateCart(
+            @Valid @RequestBody ValidateCartRequest request) {
+        return ResponseEntity.ok(cartValidationService.validate(request.items()));
+    }
+
     @GetMapping(path = "/{orderId}", version = "1")
     public ResponseEntity<OrderResponse> getOrder(
             @PathVariable Long orderId) {
-        return ResponseEntity.ok(orderService.getOrder(orderId));
+        OrderResponse order = orderService.getOrder(orderId);
+        return ResponseEntity.ok()
+                .cacheControl(CacheControl.noCache().cachePrivate())
+                .eTag(etag(order))
+                .body(order);
     }
 
     @GetMapping(version = "1")
@@ -41,7 +104,29 @@ public class OrderController {
             Authentication authentication,
             Pageable pageable) {
         String userEmail = authentication.getName();
-        return ResponseEntity.ok(orderService.getOrdersByUser(userEmail, pageable));
+        Page<OrderResponse> orders = orderHistoryQueryService.getOrdersByUser(userEmail, pageable);
+        return ResponseEntity.ok()
+                .cacheControl(CacheControl.noCache().cachePrivate())
+                .eTag(etag(orders))
+                .body(orders);
+    }
+
+    /**
+     * Keyset-paged history: pass nextCursor back as cursor for the following page.
+     * Every page costs the same however deep it is, and each order carries an item
+     * count and summary rather than its items.
+     */
+    @GetMapping(version = "2")
+    public ResponseEntity<OrderHistoryPage> getMyOrdersV2(
+            Authentication authentication,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") @Min(1) @Max(100) int limit) {
+        String userEmail = authentication.getName();
+        OrderHistoryPage orders = orderHistoryQueryService.getOrderSummaries(userEmail, cursor, limit);
+        return ResponseEntity.ok()
+                .cacheControl(CacheControl.noCache().cachePrivate())
+                .eTag(etag(cursor, orders))
+                .body(orders);
     }
 
     @PostMapping(path = "/{orderId}/cancel", version = "1")
@@ -51,4 +136,39 @@ public class OrderController {
         String userEmail = authentication.getName();
         return ResponseEntity.ok(orderService.cancelOrder(orderId, userEmail));
     }
+
+    private static String etag(OrderResponse order) {
+        return "\"order-" + order.id() + "-" + order.version() + "-v" + API_VERSION + "\"";
+    }
+
+    /**
+     * A page is identified by its position, total and the (id, version) of every order on it.
+     */
+    private static String etag(Page<OrderResponse> page) {
+        StringBuilder sb = new StringBuilder()
+                .append(page.getNumber()).append(':')
+                .append(page.getSize()).append(':')
+                .append(page.getTotalElements());
+        for (OrderResponse order : page.getContent()) {
+            sb.append('|').append(order.id()).append('.').append(order.version());
+        }
+        return hashedEtag(sb, API_VERSION);
+    }
+
+    private static String etag(String cursor, OrderHistoryPage page) {
+        StringBuilder sb = new StringBuilder().append(cursor).append(':').append(page.nextCursor());
+        for (OrderSummary order : page.orders()) {
+            sb.append('|').append(order.id()).append('.').append(order.version());
+        }
+        return hashedEtag(sb, "2");
+    }
+
+    private static String hashedEtag(StringBuilder page, String apiVersion) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(page.toString().getBytes(StandardCharsets.UTF_8));
+            return "\"orders-" + HexFormat.of().formatHex(hash, 0, 16) + "-v" + apiVersion + "\"";
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
 }
@@ -0,0 +1,7 @@
+package com.retail.orderservice.dto;
+
+public enum CartIssue {
+    UNKNOWN_PRODUCT,
+    INSUFFICIENT_STOCK,
+    PRICE_CHANGED
+}
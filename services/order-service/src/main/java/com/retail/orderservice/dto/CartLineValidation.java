@@ -0,0 +1,17 @@
+package com.retail.orderservice.dto;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * One cart line as inventory sees it now. availableStock and currentPrice are null
+ * for unknown products; issues is empty when the line would go through.
+ */
+public record CartLineValidation(
+        Long productId,
+        int quantity,
+        BigDecimal unitPrice,
+        BigDecimal currentPrice,
+        Integer availableStock,
+        List<CartIssue> issues
+) {}
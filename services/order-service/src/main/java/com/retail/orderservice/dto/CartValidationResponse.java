@@ -0,0 +1,14 @@
+package com.retail.orderservice.dto;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * Result of a checkout dry run. total is priced at current prices (unknown products
+ * excluded).
+ */
+public record CartValidationResponse(
+        boolean valid,
+        BigDecimal total,
+        List<CartLineValidation> lines
+) {}
@@ -0,0 +1,9 @@
+package com.retail.orderservice.dto;
+
+import java.util.List;
+
+public record OrderHistoryPage(
+        List<OrderSummary> orders,
+        String nextCursor,
+        boolean hasMore
+) {}
@@ -14,5 +14,6 @@ public record OrderResponse(
         String shippingAddress,
         List<OrderItemResponse> items,
         LocalDateTime createdAt,
-        LocalDateTime updatedAt
+        LocalDateTime updatedAt,
+        Long version
 ) {}
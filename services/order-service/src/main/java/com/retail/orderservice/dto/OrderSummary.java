@@ -0,0 +1,16 @@
+package com.retail.orderservice.dto;
+
+import com.retail.orderservice.entity.OrderStatus;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+public record OrderSummary(
+        Long id,
+        OrderStatus status,
+        BigDecimal totalAmount,
+        int itemCount,
+        String itemSummary,
+        LocalDateTime createdAt,
+        Long version
+) {}
@@ -0,0 +1,13 @@
+package com.retail.orderservice.dto;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+
+import java.util.List;
+
+public record ValidateCartRequest(
+        @NotEmpty(message = "Cart must have at least one item")
+        @Size(max = 500, message = "Cart can have at most 500 items")
+        List<@Valid OrderItemRequest> items
+) {}
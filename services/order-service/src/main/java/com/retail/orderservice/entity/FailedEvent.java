@@ -17,7 +17,8 @@ import java.time.LocalDateTime;
 public class FailedEvent {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "failed_events_id_seq")
+    @SequenceGenerator(name = "failed_events_id_seq", sequenceName = "failed_events_id_seq", allocationSize = 50)
     private Long id;
 
     @Column(nullable = false)
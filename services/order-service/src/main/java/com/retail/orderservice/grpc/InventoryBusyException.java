@@ -0,0 +1,29 @@
+package com.retail.orderservice.grpc;
+
+import java.time.Duration;
+
+/**
+ * Inventory shed a reservation (RESOURCE_EXHAUSTED from its ReservationLimiter) before
+ * touching stock, so nothing was reserved. Carries the server's grpc-retry-pushback-ms
+ * and is mapped to 429 + Retry-After by GlobalExceptionHandler.
+ *
+ * No stack trace: under overload these are thrown at request rate.
+ */
+public class InventoryBusyException extends IllegalStateException {
+
+    private final Duration retryAfter;
+
+    public InventoryBusyException(String message, Duration retryAfter) {
+        super(message);
+        this.retryAfter = retryAfter;
+    }
+
+    public Duration getRetryAfter() {
+        return retryAfter;
+    }
+
+    @Override
+    public synchronized Throwable fillInStackTrace() {
+        return this;
+    }
+}
@@ -2,22 +2,44 @@ package com.retail.orderservice.grpc;
 
 import com.retail.inventoryservice.proto.CheckStockRequest;
 import com.retail.inventoryservice.proto.CheckStockResponse;
+import com.retail.inventoryservice.proto.GetProductsRequest;
+import com.retail.inventoryservice.proto.GetProductsResponse;
 import com.retail.inventoryservice.proto.InventoryGrpcGrpc;
+import com.retail.inventoryservice.proto.ReleaseStockRequest;
+import com.retail.inventoryservice.proto.ReleaseStockResponse;
+import com.retail.inventoryservice.proto.ReserveLine;
+import com.retail.inventoryservice.proto.ReserveOrderRequest;
+import com.retail.inventoryservice.proto.ReserveOrderResponse;
 import com.retail.inventoryservice.proto.ReserveStockRequest;
 import com.retail.inventoryservice.proto.ReserveStockResponse;
 import io.github.resilience4j.circuitbreaker.annotation.CircuitBreaker;
+import io.grpc.Deadline;
+import io.grpc.Metadata;
+import io.grpc.Status;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Map;
+
 /**
  * gRPC client for internal calls to Inventory Service.
  * Spring gRPC auto-creates blocking stub beans via @ImportGrpcClients.
  * The stub is bound to the "inventory-service" channel in application.yaml.
+ *
+ * Reservation fallbacks rethrow a shed call (RESOURCE_EXHAUSTED) as
+ * InventoryBusyException so callers can tell "nothing reserved, retry later" apart
+ * from "inventory unavailable".
  */
 @Slf4j
 @Service
 public class InventoryGrpcClient {
 
+    private static final Metadata.Key<String> RETRY_PUSHBACK_KEY =
+            Metadata.Key.of("grpc-retry-pushback-ms", Metadata.ASCII_STRING_MARSHALLER);
+    private static final Duration DEFAULT_RETRY_AFTER = Duration.ofSeconds(1);
+
     private final InventoryGrpcGrpc.InventoryGrpcBlockingStub inventoryStub;
 
     public InventoryGrpcClient(InventoryGrpcGrpc.InventoryGrpcBlockingStub inventoryStub) {
@@ -46,6 +68,64 @@ public class InventoryGrpcClient {
         );
     }
 
+    /**
+     * ReserveStock bounded by a deadline shared with the other lines of the same order.
+     * Interrupting the calling thread cancels the RPC.
+     */
+    @CircuitBreaker(name = "inventoryGrpc", fallbackMethod = "reserveStockWithDeadlineFallback")
+    public ReserveStockResponse reserveStock(Long orderId, Long productId, int quantity, Deadline deadline) {
+        log.info("gRPC reserveStock: orderId={}, productId={}, qty={}", orderId, productId, quantity);
+        return inventoryStub.withDeadline(deadline).reserveStock(
+                ReserveStockRequest.newBuilder()
+                        .setOrderId(orderId)
+                        .setProductId(productId)
+                        .setQuantity(quantity)
+                        .build()
+        );
+    }
+
+    /**
+     * Gives back a reservation made by reserveStock. Only for reservations known to
+     * have succeeded: inventory cannot tell a duplicate release from a real one.
+     */
+    @CircuitBreaker(name = "inventoryGrpc", fallbackMethod = "releaseStockFallback")
+    public ReleaseStockResponse releaseStock(Long orderId, Long productId, int quantity) {
+        log.info("gRPC releaseStock: orderId={}, productId={}, qty={}", orderId, productId, quantity);
+        return inventoryStub.releaseStock(
+                ReleaseStockRequest.newBuilder()
+                        .setOrderId(orderId)
+                        .setProductId(productId)
+                        .setQuantity(quantity)
+                        .build()
+        );
+    }
+
+    /**
+     * Reserves all lines of an order in one call: all lines or none.
+     */
+    @CircuitBreaker(name = "inventoryGrpc", fallbackMethod = "reserveOrderFallback")
+    public ReserveOrderResponse reserveOrder(Long orderId, Map<Long, Integer> quantities) {
+        log.info("gRPC reserveOrder: orderId={}, lines={}", orderId, quantities.size());
+        ReserveOrderRequest.Builder request = ReserveOrderRequest.newBuilder().setOrderId(orderId);
+        quantities.forEach((productId, quantity) -> request.addLines(
+                ReserveLine.newBuilder().setProductId(productId).setQuantity(quantity)));
+        return inventoryStub.reserveOrder(request.build());
+    }
+
+    /**
+     * Name, price and available stock for many products in one round trip.
+     * Unknown ids are missing from the response.
+     */
+    @CircuitBreaker(name = "inventoryGrpc", fallbackMethod = "getProductsFallback")
+    public GetProductsResponse getProducts(Collection<Long> productIds) {
+        log.debug("gRPC getProducts: ids={}", productIds.size());
+        return inventoryStub.getProducts(
+                GetProductsRequest.newBuilder()
+                        .addAllProductIds(productIds)
+                        .build()
+        );
+    }
+
     @SuppressWarnings("unused")
     private CheckStockResponse checkStockFallback(Long productId, Throwable t) {
         log.error("Circuit breaker OPEN for inventory gRPC checkStock. productId={}, cause: {}",
@@ -55,8 +135,56 @@ public class InventoryGrpcClient {
 
     @SuppressWarnings("unused")
     private ReserveStockResponse reserveStockFallback(Long orderId, Long productId, int quantity, Throwable t) {
+        throwIfShed(t);
         log.error("Circuit breaker OPEN for inventory gRPC reserveStock. orderId={}, productId={}, cause: {}",
                 orderId, productId, t.getMessage());
         throw new RuntimeException("Inventory service unavailable. Cannot reserve stock.");
     }
+
+    @SuppressWarnings("unused")
+    private ReserveStockResponse reserveStockWithDeadlineFallback(Long orderId, Long productId, int quantity,
+                                                                  Deadline deadline, Throwable t) {
+        return reserveStockFallback(orderId, productId, quantity, t);
+    }
+
+    @SuppressWarnings("unused")
+    private ReleaseStockResponse releaseStockFallback(Long orderId, Long productId, int quantity, Throwable t) {
+        log.error("Circuit breaker OPEN for inventory gRPC releaseStock. orderId={}, productId={}, cause: {}",
+                orderId, productId, t.getMessage());
+        throw new RuntimeException("Inventory service unavailable. Cannot release stock.");
+    }
+
+    @SuppressWarnings("unused")
+    private ReserveOrderResponse reserveOrderFallback(Long orderId, Map<Long, Integer> quantities, Throwable t) {
+        throwIfShed(t);
+        log.error("Circuit breaker OPEN for inventory gRPC reserveOrder. orderId={}, lines={}, cause: {}",
+                orderId, quantities.size(), t.getMessage());
+        throw new RuntimeException("Inventory service unavailable. Cannot reserve stock.");
+    }
+
+    @SuppressWarnings("unused")
+    private GetProductsResponse getProductsFallback(Collection<Long> productIds, Throwable t) {
+        log.error("Circuit breaker OPEN for inventory gRPC getProducts. ids={}, cause: {}",
+                productIds.size(), t.getMessage());
+        throw new RuntimeException("Inventory service unavailable. Please try again later.");
+    }
+
+    private static void throwIfShed(Throwable t) {
+        Status status = Status.fromThrowable(t);
+        if (status.getCode() != Status.Code.RESOURCE_EXHAUSTED) {
+            return;
+        }
+        Duration retryAfter = DEFAULT_RETRY_AFTER;
+        Metadata trailers = Status.trailersFromThrowable(t);
+        String pushback = trailers == null ? null : trailers.get(RETRY_PUSHBACK_KEY);
+        if (pushback != null) {
+            try {
+                retryAfter = Duration.ofMillis(Long.parseLong(pushback));
+            } catch (NumberFormatException e) {
+                log.debug("Ignoring malformed retry pushback: {}", pushback);
+            }
+        }
+        throw new InventoryBusyException("Inventory is at reservation capacity, retry after "
+                + retryAfter.toMillis() + "ms", retryAfter);
+    }
 }
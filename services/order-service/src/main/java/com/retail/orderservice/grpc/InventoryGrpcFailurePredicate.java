@@ -0,0 +1,23 @@
+package com.retail.orderservice.grpc;
+
+import io.grpc.Status;
+
+import java.util.function.Predicate;
+
+/**
+ * Circuit breaker failure predicate for the inventoryGrpc instance.
+ *
+ * A CANCELLED call was given up by this service (ReservationFanOut cancels the
+ * outstanding lines of an order once one line fails), so it says nothing about
+ * inventory's health and must not count towards opening the breaker. Neither does
+ * RESOURCE_EXHAUSTED: inventory's ReservationLimiter answered quickly and asked for a
+ * retry later; opening the breaker on it would turn shed load into an outage.
+ */
+public class InventoryGrpcFailurePredicate implements Predicate<Throwable> {
+
+    @Override
+    public boolean test(Throwable throwable) {
+        Status.Code code = Status.fromThrowable(throwable).getCode();
+        return code != Status.Code.CANCELLED && code != Status.Code.RESOURCE_EXHAUSTED;
+    }
+}
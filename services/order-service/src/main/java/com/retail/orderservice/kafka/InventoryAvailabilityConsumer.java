@@ -0,0 +1,43 @@
+package com.retail.orderservice.kafka;
+
+import com.retail.orderservice.kafka.event.InventoryAvailabilityEvent;
+import com.retail.orderservice.service.StockAvailabilityView;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.annotation.PartitionOffset;
+import org.springframework.kafka.annotation.TopicPartition;
+import org.springframework.stereotype.Component;
+
+/**
+ * Replays the compacted "inventory-availability" topic into StockAvailabilityView.
+ *
+ * Every replica needs every product, so partitions are assigned manually (no consumer
+ * group sharing) and read from offset 0 on each start; compaction keeps that replay
+ * at roughly one record per product. No retry topics: updates are idempotent and a
+ * bad record is simply superseded by the product's next change.
+ */
+@Slf4j
+@Component
+public class InventoryAvailabilityConsumer {
+
+    private final StockAvailabilityView stockAvailabilityView;
+
+    public InventoryAvailabilityConsumer(StockAvailabilityView stockAvailabilityView) {
+        this.stockAvailabilityView = stockAvailabilityView;
+    }
+
+    @KafkaListener(
+            groupId = "order-service-stock-view",
+            topicPartitions = @TopicPartition(
+                    topic = "inventory-availability",
+                    partitionOffsets = @PartitionOffset(partition = "*", initialOffset = "0")),
+            concurrency = "1")
+    public void handle(InventoryAvailabilityEvent event) {
+        if (event == null || event.productId() == null) {
+            return;
+        }
+        log.debug("Received inventory-availability: productId={}, available={}, seq={}",
+                event.productId(), event.availableStock(), event.changeSeq());
+        stockAvailabilityView.apply(event);
+    }
+}
@@ -0,0 +1,50 @@
+package com.retail.orderservice.kafka;
+
+import com.retail.orderservice.kafka.event.OrderInventoryReservedEvent;
+import com.retail.orderservice.service.OrderService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.kafka.annotation.BackOff;
+import org.springframework.kafka.annotation.DltHandler;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.annotation.RetryableTopic;
+import org.springframework.kafka.support.KafkaHeaders;
+import org.springframework.messaging.handler.annotation.Header;
+import org.springframework.stereotype.Component;
+
+/**
+ * Order-level counterpart of InventoryReservedConsumer: one event and one UPDATE per
+ * order instead of one of each per line.
+ */
+@Slf4j
+@Component
+public class OrderInventoryReservedConsumer {
+
+    private final OrderService orderService;
+    private final FailedEventPersister failedEventPersister;
+
+    public OrderInventoryReservedConsumer(OrderService orderService,
+                                          FailedEventPersister failedEventPersister) {
+        this.orderService = orderService;
+        this.failedEventPersister = failedEventPersister;
+    }
+
+    @RetryableTopic(
+            attempts = "3",
+            backOff = @BackOff(delay = 1000, multiplier = 2.0),
+            autoCreateTopics = "false"
+    )
+    @KafkaListener(topics = "inventory-order-reserved", groupId = "order-service")
+    public void handle(OrderInventoryReservedEvent event) {
+        log.info("Received inventory-order-reserved: orderId={}, lines={}",
+                event.orderId(), event.lines().size());
+        orderService.handleOrderInventoryReserved(event.orderId(),
+                event.lines().stream().map(OrderInventoryReservedEvent.Line::productId).toList());
+    }
+
+    @DltHandler
+    public void handleDlt(OrderInventoryReservedEvent event,
+                          @Header(KafkaHeaders.RECEIVED_TOPIC) String topic) {
+        log.error("DLT: inventory-order-reserved event exhausted retries. orderId={}", event.orderId());
+        failedEventPersister.persist(topic, event.orderId().toString(), event);
+    }
+}
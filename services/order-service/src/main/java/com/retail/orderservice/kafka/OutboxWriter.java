@@ -0,0 +1,39 @@
+package com.retail.orderservice.kafka;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import tools.jackson.databind.ObjectMapper;
+
+/**
+ * Transactional outbox: events are written to the outbox table in the caller's
+ * transaction and published by OutboxRelay after it commits. An event exists if and
+ * only if the state change that produced it was committed, and a slow or unavailable
+ * broker no longer affects the request.
+ *
+ * The event class is stored with the JSON so the relay can hand the same object to
+ * the KafkaTemplate, keeping the __TypeId__ headers consumers map on.
+ */
+@Slf4j
+@Component
+public class OutboxWriter {
+
+    private static final String INSERT_SQL =
+            "INSERT INTO outbox (topic, event_key, event_type, payload) VALUES (?, ?, ?, ?::jsonb)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper;
+
+    public OutboxWriter(JdbcTemplate jdbcTemplate, ObjectMapper objectMapper) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.objectMapper = objectMapper;
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void enqueue(String topic, String key, Object event) {
+        jdbcTemplate.update(INSERT_SQL, topic, key, event.getClass().getName(), objectMapper.writeValueAsString(event));
+        log.debug("Queued {} in outbox: key={}", topic, key);
+    }
+}
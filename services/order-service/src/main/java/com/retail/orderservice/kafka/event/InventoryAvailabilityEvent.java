@@ -0,0 +1,11 @@
+package com.retail.orderservice.kafka.event;
+
+/**
+ * Consumed from the compacted "inventory-availability" topic (published by Inventory
+ * Service). availableStock is -1 when the product no longer has an inventory row.
+ */
+public record InventoryAvailabilityEvent(
+        Long productId,
+        int availableStock,
+        long changeSeq
+) {}
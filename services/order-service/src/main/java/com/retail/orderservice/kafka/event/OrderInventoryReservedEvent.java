@@ -0,0 +1,15 @@
+package com.retail.orderservice.kafka.event;
+
+import java.util.List;
+
+/**
+ * Consumed from "inventory-order-reserved" topic.
+ * Published by Inventory Service once per order reserved through ReserveOrder,
+ * carrying every reserved line.
+ */
+public record OrderInventoryReservedEvent(
+        Long orderId,
+        List<Line> lines
+) {
+    public record Line(Long productId, int quantity) {}
+}
@@ -5,9 +5,21 @@ import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 
+import java.util.Collection;
+import java.util.List;
+
 public interface OrderItemRepository extends JpaRepository<OrderItem, Long> {
 
     @Modifying
-    @Query("UPDATE OrderItem oi SET oi.inventoryReserved = true WHERE oi.order.id = :orderId AND oi.productId = :productId")
+    @Query("UPDATE OrderItem oi SET oi.inventoryReserved = true " +
+           "WHERE oi.order.id = :orderId AND oi.productId = :productId AND oi.inventoryReserved = false")
     int markInventoryReserved(Long orderId, Long productId);
+
+    @Modifying
+    @Query("UPDATE OrderItem oi SET oi.inventoryReserved = true " +
+           "WHERE oi.order.id = :orderId AND oi.productId IN :productIds AND oi.inventoryReserved = false")
+    int markInventoryReservedForOrder(Long orderId, Collection<Long> productIds);
+
+    @Query("SELECT oi FROM OrderItem oi WHERE oi.order.id = :orderId AND oi.inventoryReserved = true")
+    List<OrderItem> findReservedByOrderId(Long orderId);
 }
@@ -4,15 +4,50 @@ import com.retail.orderservice.entity.Order;
 import com.retail.orderservice.entity.OrderStatus;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 
-public interface OrderRepository extends JpaRepository<Order, Long> {
+import java.time.LocalDateTime;
+import java.util.List;
 
-    Page<Order> findByUserEmailOrderByCreatedAtDesc(String userEmail, Pageable pageable);
+public interface OrderRepository extends JpaRepository<Order, Long> {
 
     Page<Order> findByStatusOrderByCreatedAtDesc(OrderStatus status, Pageable pageable);
 
     @Query("SELECT o FROM Order o JOIN FETCH o.items WHERE o.id = :id")
     java.util.Optional<Order> findByIdWithItems(Long id);
+
+    /**
+     * Compare-and-set on status, so createOrder and PendingOrderCompensator cannot both
+     * move the same PENDING order. Bumps the version like an entity update would.
+     */
+    @Modifying
+    @Query("UPDATE Order o SET o.status = :to, o.version = o.version + 1, o.updatedAt = :now " +
+           "WHERE o.id = :id AND o.status = :from")
+    int transitionStatus(Long id, OrderStatus from, OrderStatus to, LocalDateTime now);
+
+    /**
+     * Version bump for a change made by a bulk item update (the inventory-reserved
+     * flags), so the order's ETag changes with its body.
+     */
+    @Modifying
+    @Query("UPDATE Order o SET o.version = o.version + 1, o.updatedAt = :now WHERE o.id = :id")
+    int touch(Long id, LocalDateTime now);
+
+    @Query("SELECT o.version FROM Order o WHERE o.id = :id")
+    long findVersionById(Long id);
+
+    /**
+     * Status under a row lock. Reserved-flag updates take it first, so they either
+     * finish before a compensating cancel reads the flags or see CANCELLED. Not FOR
+     * SHARE: the update then bumps the version (touch), and two holders of a share lock
+     * upgrading at once would deadlock.
+     */
+    @Query(value = "SELECT status FROM orders WHERE id = :id FOR NO KEY UPDATE", nativeQuery = true)
+    java.util.Optional<String> lockStatus(Long id);
+
+    @Query("SELECT o.id FROM Order o WHERE o.status = :status AND o.createdAt < :before ORDER BY o.createdAt")
+    List<Long> findIdsByStatusCreatedBefore(OrderStatus status, LocalDateTime before, Limit limit);
 }
@@ -0,0 +1,91 @@
+package com.retail.orderservice.service;
+
+import com.retail.inventoryservice.proto.GetProductsResponse;
+import com.retail.inventoryservice.proto.ProductInfo;
+import com.retail.orderservice.dto.CartIssue;
+import com.retail.orderservice.dto.CartLineValidation;
+import com.retail.orderservice.dto.CartValidationResponse;
+import com.retail.orderservice.dto.OrderItemRequest;
+import com.retail.orderservice.grpc.InventoryGrpcClient;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Checkout dry run for the cart page: availability and current prices for every line
+ * from one GetProducts call (served from inventory's product cache), with no order
+ * rows written and no order DB connection taken. Lines of the same product are summed
+ * before the stock check, as createOrder would reserve them.
+ *
+ * Advisory only: stock can still run out between validation and createOrder.
+ */
+@Slf4j
+@Service
+public class CartValidationService {
+
+    private final InventoryGrpcClient inventoryGrpcClient;
+    private final Counter validCounter;
+    private final Counter invalidCounter;
+
+    public CartValidationService(InventoryGrpcClient inventoryGrpcClient, MeterRegistry meterRegistry) {
+        this.inventoryGrpcClient = inventoryGrpcClient;
+        this.validCounter = Counter.builder("orders.cart.validations.total")
+                .description("Checkout dry runs")
+                .tag("result", "valid")
+                .register(meterRegistry);
+        this.invalidCounter = Counter.builder("orders.cart.validations.total")
+                .description("Checkout dry runs")
+                .tag("result", "invalid")
+                .register(meterRegistry);
+    }
+
+    public CartValidationResponse validate(List<OrderItemRequest> items) {
+        Map<Long, Integer> requested = new HashMap<>();
+        for (OrderItemRequest item : items) {
+            requested.merge(item.productId(), item.quantity(), Integer::sum);
+        }
+
+        GetProductsResponse response = inventoryGrpcClient.getProducts(requested.keySet());
+        Map<Long, ProductInfo> products = new HashMap<>();
+        for (ProductInfo product : response.getProductsList()) {
+            products.put(product.getProductId(), product);
+        }
+
+        boolean valid = true;
+        BigDecimal total = BigDecimal.ZERO;
+        List<CartLineValidation> lines = new ArrayList<>(items.size());
+        for (OrderItemRequest item : items) {
+            ProductInfo product = products.get(item.productId());
+            List<CartIssue> issues = new ArrayList<>(2);
+            BigDecimal currentPrice = null;
+            Integer available = null;
+            if (product == null) {
+                issues.add(CartIssue.UNKNOWN_PRODUCT);
+            } else {
+                currentPrice = new BigDecimal(product.getPrice());
+                available = product.getAvailableStock();
+                if (requested.get(item.productId()) > available) {
+                    issues.add(CartIssue.INSUFFICIENT_STOCK);
+                }
+                if (currentPrice.compareTo(item.unitPrice()) != 0) {
+                    issues.add(CartIssue.PRICE_CHANGED);
+                }
+                total = total.add(currentPrice.multiply(BigDecimal.valueOf(item.quantity())));
+            }
+            valid &= issues.isEmpty();
+            lines.add(new CartLineValidation(item.productId(), item.quantity(), item.unitPrice(),
+                    currentPrice, available, List.copyOf(issues)));
+        }
+
+        (valid ? validCounter : invalidCounter).increment();
+        log.debug("Cart validated: lines={}, valid={}", items.size(), valid);
+        return new CartValidationResponse(valid, total, lines);
+    }
+}
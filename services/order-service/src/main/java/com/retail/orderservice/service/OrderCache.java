@@ -0,0 +1,145 @@
+package com.retail.orderservice.service;
+
+import com.retail.orderservice.config.CacheConfig;
+import com.retail.orderservice.dto.OrderResponse;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.data.redis.serializer.GenericJacksonJsonRedisSerializer;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Reads and writes of the "order" cache, with every write guarded by
+ * OrderResponse.version so an older state never replaces a newer one.
+ *
+ * Without the guard a GET that loaded the order just before a saga transition
+ * committed could finish after that transition wrote its state through, and leave the
+ * old state in Dragonfly for the whole TTL. L1 entries are replaced with an atomic
+ * merge on the Caffeine map; L2 entries with a script that decodes the cached JSON and
+ * keeps it when its version is not older.
+ *
+ * The entries are the ones TieredCache would write (same keys, serializer and TTL),
+ * so evicting through the cache manager still works.
+ */
+@Slf4j
+@Component
+public class OrderCache {
+
+    private static final String CACHE_NAME = "order";
+    private static final String KEY_PREFIX = CacheConfig.L2_KEY_PREFIX + CACHE_NAME + "::";
+    private static final RedisScript<Long> PUT_IF_NEWER = RedisScript.of("""
+            local current = redis.call('GET', KEYS[1])
+            if current then
+                local ok, cached = pcall(cjson.decode, current)
+                if ok and type(cached) == 'table' and tonumber(cached.version)
+                        and tonumber(cached.version) >= tonumber(ARGV[2]) then
+                    return 0
+                end
+            end
+            redis.call('SET', KEYS[1], ARGV[1], 'PX', ARGV[3])
+            return 1
+            """, Long.class);
+
+    private final com.github.benmanes.caffeine.cache.Cache<Object, Object> l1;
+    private final StringRedisTemplate redisTemplate;
+    private final GenericJacksonJsonRedisSerializer serializer = GenericJacksonJsonRedisSerializer.builder().build();
+
+    private final Counter l1HitCounter;
+    private final Counter l2HitCounter;
+    private final Counter missCounter;
+    private final Counter staleWriteCounter;
+
+    @SuppressWarnings("unchecked")
+    public OrderCache(CacheManager cacheManager, StringRedisTemplate redisTemplate, MeterRegistry meterRegistry) {
+        Cache cache = cacheManager.getCache(CACHE_NAME);
+        if (cache == null) {
+            throw new IllegalStateException("No \"" + CACHE_NAME + "\" cache configured");
+        }
+        // TieredCache exposes its L1 (Caffeine) as the native cache.
+        this.l1 = (com.github.benmanes.caffeine.cache.Cache<Object, Object>) cache.getNativeCache();
+        this.redisTemplate = redisTemplate;
+
+        // Same meters TieredCache registers, so the cache dashboards keep working.
+        this.l1HitCounter = Counter.builder("cache.gets")
+                .tag("cache", CACHE_NAME)
+                .tag("result", "l1_hit")
+                .register(meterRegistry);
+        this.l2HitCounter = Counter.builder("cache.gets")
+                .tag("cache", CACHE_NAME)
+                .tag("result", "l2_hit")
+                .register(meterRegistry);
+        this.missCounter = Counter.builder("cache.gets")
+                .tag("cache", CACHE_NAME)
+                .tag("result", "miss")
+                .register(meterRegistry);
+        this.staleWriteCounter = Counter.builder("orders.cache.stale.writes.total")
+                .description("Order cache writes skipped because a newer version was already cached")
+                .register(meterRegistry);
+    }
+
+    /**
+     * L1, then L2, then loader. A loaded or L2 value is put with the same version guard.
+     */
+    public OrderResponse get(Long orderId, Supplier<OrderResponse> loader) {
+        if (l1.getIfPresent(orderId) instanceof OrderResponse local) {
+            l1HitCounter.increment();
+            return local;
+        }
+        OrderResponse shared = readShared(orderId);
+        if (shared != null) {
+            l2HitCounter.increment();
+            putLocal(shared);
+            return shared;
+        }
+        missCounter.increment();
+        OrderResponse loaded = loader.get();
+        put(loaded);
+        return loaded;
+    }
+
+    /**
+     * Caches the response unless a newer version of the order is already cached.
+     */
+    public void put(OrderResponse response) {
+        putLocal(response);
+        try {
+            Long written = redisTemplate.execute(PUT_IF_NEWER, List.of(KEY_PREFIX + response.id()),
+                    new String(serializer.serialize(response), StandardCharsets.UTF_8),
+                    Long.toString(response.version()),
+                    Long.toString(CacheConfig.L2_TTL.toMillis()));
+            if (written != null && written == 0) {
+                staleWriteCounter.increment();
+            }
+        } catch (DataAccessException e) {
+            log.warn("Could not cache order in Dragonfly: orderId={}, cause: {}", response.id(), e.getMessage());
+        }
+    }
+
+    private void putLocal(OrderResponse response) {
+        l1.asMap().merge(response.id(), response, (current, candidate) ->
+                current instanceof OrderResponse cached && cached.version() >= response.version()
+                        ? current
+                        : candidate);
+    }
+
+    private OrderResponse readShared(Long orderId) {
+        try {
+            String json = redisTemplate.opsForValue().get(KEY_PREFIX + orderId);
+            if (json != null && serializer.deserialize(json.getBytes(StandardCharsets.UTF_8)) instanceof OrderResponse cached) {
+                return cached;
+            }
+        } catch (DataAccessException e) {
+            log.warn("Could not read cached order from Dragonfly: orderId={}, cause: {}", orderId, e.getMessage());
+        }
+        return null;
+    }
+}
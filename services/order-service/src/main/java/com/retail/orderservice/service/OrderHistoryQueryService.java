@@ -0,0 +1,125 @@
+package com.retail.orderservice.service;
+
+import com.retail.orderservice.dto.OrderHistoryPage;
+import com.retail.orderservice.dto.OrderItemResponse;
+import com.retail.orderservice.dto.OrderResponse;
+import com.retail.orderservice.dto.OrderSummary;
+import com.retail.orderservice.entity.OrderStatus;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.support.PageableExecutionUtils;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import tools.jackson.core.type.TypeReference;
+import tools.jackson.databind.ObjectMapper;
+
+import java.sql.Timestamp;
+import java.util.List;
+
+/**
+ * Order history reads, served from the order_history read model (OrderHistoryWriter)
+ * instead of orders + order_items. A page is one range scan of
+ * idx_order_history_user_created however many items the orders have; the total is
+ * only counted when the page does not already reveal it.
+ *
+ * Always newest first: a sort requested through the Pageable is ignored.
+ *
+ * getOrderSummaries is the keyset variant: it seeks past a cursor instead of skipping
+ * OFFSET rows and never counts, so page 500 costs what page 1 does. It returns an item
+ * count and summary per order instead of the items themselves.
+ */
+@Service
+public class OrderHistoryQueryService {
+
+    private static final String PAGE_SQL = """
+            SELECT order_id, user_email, status, total_amount, shipping_address, items::text AS items,
+                   version, created_at, updated_at
+            FROM order_history
+            WHERE user_email = ?
+            ORDER BY created_at DESC, order_id DESC
+            LIMIT ? OFFSET ?
+            """;
+    private static final String COUNT_SQL = "SELECT count(*) FROM order_history WHERE user_email = ?";
+    private static final String FIRST_SUMMARIES_SQL = """
+            SELECT order_id, status, total_amount, item_count, items->0->>'productName' AS first_item,
+                   version, created_at
+            FROM order_history
+            WHERE user_email = ?
+            ORDER BY created_at DESC, order_id DESC
+            LIMIT ?
+            """;
+    private static final String NEXT_SUMMARIES_SQL = """
+            SELECT order_id, status, total_amount, item_count, items->0->>'productName' AS first_item,
+                   version, created_at
+            FROM order_history
+            WHERE user_email = ? AND (created_at, order_id) < (?, ?)
+            ORDER BY created_at DESC, order_id DESC
+            LIMIT ?
+            """;
+    private static final TypeReference<List<OrderItemResponse>> ITEMS_TYPE = new TypeReference<>() {
+    };
+
+    private final JdbcTemplate jdbcTemplate;
+    private final RowMapper<OrderResponse> rowMapper;
+    private final RowMapper<OrderSummary> summaryRowMapper = (rs, rowNum) -> new OrderSummary(
+            rs.getLong("order_id"),
+            OrderStatus.valueOf(rs.getString("status")),
+            rs.getBigDecimal("total_amount"),
+            rs.getInt("item_count"),
+            itemSummary(rs.getString("first_item"), rs.getInt("item_count")),
+            rs.getTimestamp("created_at").toLocalDateTime(),
+            rs.getLong("version"));
+
+    public OrderHistoryQueryService(JdbcTemplate jdbcTemplate, ObjectMapper objectMapper) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.rowMapper = (rs, rowNum) -> new OrderResponse(
+                rs.getLong("order_id"),
+                rs.getString("user_email"),
+                OrderStatus.valueOf(rs.getString("status")),
+                rs.getBigDecimal("total_amount"),
+                rs.getString("shipping_address"),
+                objectMapper.readValue(rs.getString("items"), ITEMS_TYPE),
+                rs.getTimestamp("created_at").toLocalDateTime(),
+                rs.getTimestamp("updated_at").toLocalDateTime(),
+                rs.getLong("version"));
+    }
+
+    @Transactional(readOnly = true)
+    public Page<OrderResponse> getOrdersByUser(String userEmail, Pageable pageable) {
+        List<OrderResponse> orders = jdbcTemplate.query(PAGE_SQL, rowMapper,
+                userEmail, pageable.getPageSize(), pageable.getOffset());
+        return PageableExecutionUtils.getPage(orders, pageable,
+                () -> jdbcTemplate.queryForObject(COUNT_SQL, Long.class, userEmail));
+    }
+
+    /**
+     * @param cursor nextCursor of the previous page, or null for the newest orders
+     */
+    @Transactional(readOnly = true)
+    public OrderHistoryPage getOrderSummaries(String userEmail, String cursor, int limit) {
+        // One extra row says whether another page exists, without counting.
+        List<OrderSummary> orders;
+        if (cursor == null) {
+            orders = jdbcTemplate.query(FIRST_SUMMARIES_SQL, summaryRowMapper, userEmail, limit + 1);
+        } else {
+            HistoryCursor after = HistoryCursor.decode(cursor);
+            orders = jdbcTemplate.query(NEXT_SUMMARIES_SQL, summaryRowMapper,
+                    userEmail, Timestamp.valueOf(after.createdAt()), after.id(), limit + 1);
+        }
+        if (orders.size() <= limit) {
+            return new OrderHistoryPage(orders, null, false);
+        }
+        List<OrderSummary> page = List.copyOf(orders.subList(0, limit));
+        OrderSummary last = page.getLast();
+        return new OrderHistoryPage(page, new HistoryCursor(last.createdAt(), last.id()).encode(), true);
+    }
+
+    private static String itemSummary(String firstItem, int itemCount) {
+        if (firstItem == null) {
+            return "";
+        }
+        return itemCount == 1 ? firstItem : firstItem + " and " + (itemCount - 1) + " more";
+    }
+}
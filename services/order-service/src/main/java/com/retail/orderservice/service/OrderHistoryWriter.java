@@ -0,0 +1,107 @@
+package com.retail.orderservice.service;
+
+import com.retail.orderservice.dto.OrderItemResponse;
+import com.retail.orderservice.entity.Order;
+import com.retail.orderservice.entity.OrderStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import tools.jackson.databind.ObjectMapper;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Maintains order_history, the denormalized read model behind the order list (see
+ * OrderHistoryQueryService): one row per order with its items as a JSONB array.
+ *
+ * Every method joins the transaction of the order state change it mirrors, so the
+ * row is never ahead of or behind the order, and the row carries the order's version
+ * (the ETag of the list response depends on it).
+ */
+@Component
+public class OrderHistoryWriter {
+
+    private static final String INSERT_SQL = """
+            INSERT INTO order_history (order_id, user_email, status, total_amount, shipping_address,
+                                       item_count, items, version, created_at, updated_at)
+            VALUES (?, ?, ?, ?, ?, ?, ?::jsonb, ?, ?, ?)
+            """;
+    private static final String UPDATE_SQL =
+            "UPDATE order_history SET status = ?, version = ?, updated_at = ? WHERE order_id = ?";
+    private static final String TRANSITION_SQL =
+            "UPDATE order_history SET status = ?, updated_at = ?, version = version + 1 WHERE order_id = ?";
+    private static final String TRANSITION_WITH_ITEMS_SQL =
+            "UPDATE order_history SET status = ?, items = ?::jsonb, updated_at = ?, version = version + 1 " +
+            "WHERE order_id = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper;
+
+    public OrderHistoryWriter(JdbcTemplate jdbcTemplate, ObjectMapper objectMapper) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * The order was persisted; ids, timestamps and version are assigned.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordCreated(Order order) {
+        jdbcTemplate.update(INSERT_SQL,
+                order.getId(),
+                order.getUserEmail(),
+                order.getStatus().name(),
+                order.getTotalAmount(),
+                order.getShippingAddress(),
+                order.getItems().size(),
+                itemsJson(order),
+                order.getVersion() != null ? order.getVersion() : 0L,
+                Timestamp.valueOf(order.getCreatedAt()),
+                Timestamp.valueOf(order.getUpdatedAt()));
+    }
+
+    /**
+     * The managed order was changed and flushed; copies status, version and updated_at.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordUpdate(Order order) {
+        jdbcTemplate.update(UPDATE_SQL, order.getStatus().name(), order.getVersion(),
+                Timestamp.valueOf(order.getUpdatedAt()), order.getId());
+    }
+
+    /**
+     * Mirrors OrderRepository.transitionStatus, which bumps the version by one.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordTransition(Long orderId, OrderStatus status) {
+        jdbcTemplate.update(TRANSITION_SQL, status.name(), Timestamp.valueOf(LocalDateTime.now()), orderId);
+    }
+
+    /**
+     * As recordTransition, for a transition that also changed item state (the
+     * inventory-reserved flags); items are taken from the in-memory order.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordTransition(Order order, OrderStatus status) {
+        jdbcTemplate.update(TRANSITION_WITH_ITEMS_SQL, status.name(), itemsJson(order),
+                Timestamp.valueOf(LocalDateTime.now()), order.getId());
+    }
+
+    private String itemsJson(Order order) {
+        List<OrderItemResponse> items = order.getItems().stream()
+                .map(i -> new OrderItemResponse(
+                        i.getId(),
+                        i.getProductId(),
+                        i.getProductName(),
+                        i.getQuantity(),
+                        i.getUnitPrice(),
+                        i.getSubtotal(),
+                        i.isInventoryReserved()
+                ))
+                .toList();
+        return objectMapper.writeValueAsString(items);
+    }
+}
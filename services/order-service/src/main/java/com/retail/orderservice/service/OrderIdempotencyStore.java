@@ -0,0 +1,224 @@
+package com.retail.orderservice.service;
+
+import com.retail.orderservice.dto.CreateOrderRequest;
+import com.retail.orderservice.dto.OrderResponse;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Component;
+import tools.jackson.databind.ObjectMapper;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Idempotency-Key support for POST /api/orders, kept in Dragonfly so every replica
+ * sees the same keys.
+ *
+ * The first request with a key claims it with SET NX (the entry then holds only the
+ * request fingerprint) and runs createOrder. Its response replaces the entry for
+ * window. A duplicate arriving later gets that response back without touching the DB
+ * or inventory. One arriving while the first is still running waits up to waitTimeout
+ * for it, then gets 409. A failed createOrder drops the claim, so the client's retry
+ * runs again, unless the order row was already committed (OrderPendingException):
+ * that PENDING order is stored as the outcome, since a second order would reserve the
+ * stock again while the first still holds it. Reusing a key with a different body is
+ * rejected.
+ *
+ * Keys are scoped per user. While createOrder runs, the claim's TTL is pushed out
+ * every third of inFlightTimeout, so a request slowed by pool waits never loses it; a
+ * claim whose process died stops being refreshed and expires after inFlightTimeout,
+ * so the key becomes usable again. If Dragonfly is unreachable,
+ * orders are created without idempotency rather than failing checkout.
+ */
+@Slf4j
+@Component
+public class OrderIdempotencyStore {
+
+    private static final String KEY_PREFIX = "order-service:idempotency:";
+    private static final int MAX_KEY_LENGTH = 255;
+    private static final long POLL_INTERVAL_MS = 50;
+    // Only while the entry is still the bare claim: never shorten a stored response.
+    private static final RedisScript<Long> EXTEND_CLAIM = RedisScript.of("""
+            if redis.call('GET', KEYS[1]) == ARGV[1] then
+                return redis.call('PEXPIRE', KEYS[1], ARGV[2])
+            end
+            return 0
+            """, Long.class);
+
+    /**
+     * Stored value: the request fingerprint, plus the response once the order exists.
+     */
+    record Entry(String fingerprint, OrderResponse response) {
+    }
+
+    private final StringRedisTemplate redisTemplate;
+    private final ObjectMapper objectMapper;
+    private final Duration window;
+    private final Duration inFlightTimeout;
+    private final Duration waitTimeout;
+
+    private final Counter replayedCounter;
+    private final Counter inProgressCounter;
+    private final Counter unavailableCounter;
+    private final ScheduledExecutorService claimRefresher = Executors.newSingleThreadScheduledExecutor(
+            Thread.ofPlatform().name("idempotency-claim-refresher").daemon().factory());
+
+    public OrderIdempotencyStore(StringRedisTemplate redisTemplate,
+                                 ObjectMapper objectMapper,
+                                 @Value("${order.idempotency.window:24h}") Duration window,
+                                 @Value("${order.idempotency.in-flight-timeout:30s}") Duration inFlightTimeout,
+                                 @Value("${order.idempotency.wait-timeout:10s}") Duration waitTimeout,
+                                 MeterRegistry meterRegistry) {
+        this.redisTemplate = redisTemplate;
+        this.objectMapper = objectMapper;
+        this.window = window;
+        this.inFlightTimeout = inFlightTimeout;
+        this.waitTimeout = waitTimeout;
+
+        this.replayedCounter = Counter.builder("orders.idempotency.replayed.total")
+                .description("Duplicate order submissions answered with the stored response")
+                .register(meterRegistry);
+        this.inProgressCounter = Counter.builder("orders.idempotency.in.progress.total")
+                .description("Duplicate order submissions rejected while the first was still running")
+                .register(meterRegistry);
+        this.unavailableCounter = Counter.builder("orders.idempotency.unavailable.total")
+                .description("Orders created without idempotency because Dragonfly was unreachable")
+                .register(meterRegistry);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        claimRefresher.shutdownNow();
+    }
+
+    public OrderResponse execute(String userEmail, String idempotencyKey, CreateOrderRequest request,
+                                 Supplier<OrderResponse> createOrder) {
+        if (idempotencyKey.isBlank() || idempotencyKey.length() > MAX_KEY_LENGTH) {
+            throw new IllegalArgumentException("Idempotency-Key must be 1 to " + MAX_KEY_LENGTH + " characters");
+        }
+        String key = KEY_PREFIX + userEmail + ":" + idempotencyKey;
+        String fingerprint = fingerprint(request);
+        String claim = write(new Entry(fingerprint, null));
+
+        long waitUntil = System.nanoTime() + waitTimeout.toNanos();
+        while (true) {
+            Boolean claimed;
+            String stored;
+            try {
+                claimed = redisTemplate.opsForValue().setIfAbsent(key, claim, inFlightTimeout);
+                stored = Boolean.TRUE.equals(claimed) ? null : redisTemplate.opsForValue().get(key);
+            } catch (DataAccessException e) {
+                unavailableCounter.increment();
+                log.warn("Idempotency store unavailable, creating order without it: {}", e.getMessage());
+                return createOrder.get();
+            }
+            if (Boolean.TRUE.equals(claimed)) {
+                return runClaimed(key, fingerprint, claim, createOrder);
+            }
+            if (stored != null) {
+                Entry entry = objectMapper.readValue(stored, Entry.class);
+                if (!entry.fingerprint().equals(fingerprint)) {
+                    throw new IllegalArgumentException("Idempotency-Key was already used for a different order");
+                }
+                if (entry.response() != null) {
+                    replayedCounter.increment();
+                    log.info("Replaying order for Idempotency-Key: orderId={}", entry.response().id());
+                    return entry.response();
+                }
+            }
+            // Still running elsewhere, or it failed and dropped the claim: look again.
+            if (System.nanoTime() - waitUntil >= 0) {
+                inProgressCounter.increment();
+                throw new IllegalStateException("An order with this Idempotency-Key is still being processed");
+            }
+            sleep();
+        }
+    }
+
+    private OrderResponse runClaimed(String key, String fingerprint, String claim,
+                                     Supplier<OrderResponse> createOrder) {
+        long refreshMs = Math.max(1, inFlightTimeout.toMillis() / 3);
+        ScheduledFuture<?> refresh = claimRefresher.scheduleAtFixedRate(
+                () -> extendClaim(key, claim), refreshMs, refreshMs, TimeUnit.MILLISECONDS);
+        OrderResponse response;
+        try {
+            response = createOrder.get();
+        } catch (OrderPendingException e) {
+            refresh.cancel(false);
+            store(key, fingerprint, e.getOrder());
+            throw e;
+        } catch (RuntimeException e) {
+            refresh.cancel(false);
+            release(key);
+            throw e;
+        }
+        refresh.cancel(false);
+        store(key, fingerprint, response);
+        return response;
+    }
+
+    private void store(String key, String fingerprint, OrderResponse response) {
+        try {
+            redisTemplate.opsForValue().set(key, write(new Entry(fingerprint, response)), window);
+        } catch (DataAccessException e) {
+            // The order exists; only the replay is lost (the claim expires on its own).
+            log.warn("Could not store order for Idempotency-Key: orderId={}, cause: {}",
+                    response.id(), e.getMessage());
+        }
+    }
+
+    private void extendClaim(String key, String claim) {
+        try {
+            redisTemplate.execute(EXTEND_CLAIM, List.of(key), claim, Long.toString(inFlightTimeout.toMillis()));
+        } catch (RuntimeException e) {
+            // Caught so the schedule keeps running; the next refresh tries again.
+            log.warn("Could not refresh Idempotency-Key claim: {}", e.getMessage());
+        }
+    }
+
+    private void release(String key) {
+        try {
+            redisTemplate.delete(key);
+        } catch (DataAccessException e) {
+            log.warn("Could not release Idempotency-Key claim, it expires in {}: {}", inFlightTimeout, e.getMessage());
+        }
+    }
+
+    private String write(Entry entry) {
+        return objectMapper.writeValueAsString(entry);
+    }
+
+    private String fingerprint(CreateOrderRequest request) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(
+                    objectMapper.writeValueAsString(request).getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(hash);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void sleep() {
+        try {
+            Thread.sleep(POLL_INTERVAL_MS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for an order with the same Idempotency-Key", e);
+        }
+    }
+}
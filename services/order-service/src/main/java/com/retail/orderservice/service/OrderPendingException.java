@@ -0,0 +1,23 @@
+package com.retail.orderservice.service;
+
+import com.retail.orderservice.dto.OrderResponse;
+
+/**
+ * createOrder failed after the order row was committed, without knowing which lines
+ * inventory reserved. The order stays PENDING until PendingOrderCompensator settles
+ * it. OrderIdempotencyStore keeps this order as the key's outcome, so a retry with the
+ * same key gets it back instead of placing a second order.
+ */
+public class OrderPendingException extends RuntimeException {
+
+    private final OrderResponse order;
+
+    public OrderPendingException(OrderResponse order, RuntimeException cause) {
+        super("Order " + order.id() + " could not be completed and is pending: " + cause.getMessage(), cause);
+        this.order = order;
+    }
+
+    public OrderResponse getOrder() {
+        return order;
+    }
+}
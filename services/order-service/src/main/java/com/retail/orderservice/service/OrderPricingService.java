@@ -0,0 +1,88 @@
+package com.retail.orderservice.service;
+
+import com.retail.orderservice.dto.OrderItemRequest;
+import com.retail.orderservice.service.ProductCatalogCache.CatalogEntry;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Prices order lines from inventory's catalog instead of the client's request.
+ *
+ * Names and prices come from ProductCatalogCache. One GetProducts call at most per
+ * order loads the lines that are not cached, plus the cached lines whose price
+ * disagrees with the client, since the cached entry may be the stale side. A price
+ * that still disagrees after that is a real change: the order is rejected (409) so
+ * the shopper sees the new price before paying it.
+ */
+@Slf4j
+@Service
+public class OrderPricingService {
+
+    /**
+     * An order line with trusted name and unit price.
+     */
+    public record PricedLine(Long productId, String productName, int quantity, BigDecimal unitPrice) {
+    }
+
+    private final ProductCatalogCache productCatalogCache;
+    private final Counter priceMismatchCounter;
+    private final Counter unknownProductCounter;
+
+    public OrderPricingService(ProductCatalogCache productCatalogCache, MeterRegistry meterRegistry) {
+        this.productCatalogCache = productCatalogCache;
+        this.priceMismatchCounter = Counter.builder("orders.pricing.rejected.total")
+                .description("Orders rejected during server-side pricing")
+                .tag("reason", "price_mismatch")
+                .register(meterRegistry);
+        this.unknownProductCounter = Counter.builder("orders.pricing.rejected.total")
+                .description("Orders rejected during server-side pricing")
+                .tag("reason", "unknown_product")
+                .register(meterRegistry);
+    }
+
+    public List<PricedLine> price(List<OrderItemRequest> items) {
+        Set<Long> productIds = new LinkedHashSet<>();
+        items.forEach(item -> productIds.add(item.productId()));
+
+        Map<Long, CatalogEntry> trusted = new HashMap<>(productCatalogCache.getCached(productIds));
+        Set<Long> toLoad = new LinkedHashSet<>();
+        for (OrderItemRequest item : items) {
+            CatalogEntry cached = trusted.get(item.productId());
+            if (cached == null || cached.price().compareTo(item.unitPrice()) != 0) {
+                toLoad.add(item.productId());
+            }
+        }
+        if (!toLoad.isEmpty()) {
+            toLoad.forEach(trusted::remove);
+            trusted.putAll(productCatalogCache.load(toLoad));
+        }
+
+        List<PricedLine> lines = new ArrayList<>(items.size());
+        for (OrderItemRequest item : items) {
+            CatalogEntry entry = trusted.get(item.productId());
+            if (entry == null) {
+                unknownProductCounter.increment();
+                throw new IllegalArgumentException("Product not found: " + item.productId());
+            }
+            if (entry.price().compareTo(item.unitPrice()) != 0) {
+                priceMismatchCounter.increment();
+                log.info("Price mismatch: productId={}, submitted={}, current={}",
+                        item.productId(), item.unitPrice(), entry.price());
+                throw new IllegalStateException("Price changed for " + entry.name()
+                        + ": now " + entry.price().toPlainString());
+            }
+            lines.add(new PricedLine(item.productId(), entry.name(), item.quantity(), entry.price()));
+        }
+        return lines;
+    }
+}
@@ -1,28 +1,38 @@
 package com.retail.orderservice.service;
 
+import com.retail.inventoryservice.proto.ReserveOrderResponse;
 import com.retail.inventoryservice.proto.ReserveStockResponse;
 import com.retail.orderservice.dto.*;
 import com.retail.orderservice.entity.Order;
 import com.retail.orderservice.entity.OrderItem;
 import com.retail.orderservice.entity.OrderStatus;
+import com.retail.orderservice.grpc.InventoryBusyException;
 import com.retail.orderservice.grpc.InventoryGrpcClient;
 import com.retail.orderservice.kafka.OrderEventProducer;
 import com.retail.orderservice.kafka.event.OrderCreatedEvent;
 import com.retail.orderservice.repository.OrderItemRepository;
 import com.retail.orderservice.repository.OrderRepository;
+import com.retail.orderservice.service.OrderPricingService.PricedLine;
 import io.micrometer.core.instrument.Counter;
 import io.micrometer.core.instrument.MeterRegistry;
 import io.micrometer.core.instrument.Timer;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.cache.annotation.CacheEvict;
-import org.springframework.cache.annotation.Cacheable;
-import org.springframework.data.domain.Page;
-import org.springframework.data.domain.Pageable;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 @Slf4j
 @Service
@@ -32,6 +42,12 @@ public class OrderService {
     private final OrderItemRepository orderItemRepository;
     private final InventoryGrpcClient inventoryGrpcClient;
     private final OrderEventProducer orderEventProducer;
+    private final OrderPricingService orderPricingService;
+    private final ReservationFanOut reservationFanOut;
+    private final OrderHistoryWriter orderHistoryWriter;
+    private final TransactionTemplate transactionTemplate;
+    private final OrderCache orderCache;
+    private final ReservationMode reservationMode;
 
     private final Counter ordersCreatedCounter;
     private final Counter ordersCancelledCounter;
@@ -46,11 +62,28 @@ public class OrderService {
                         OrderItemRepository orderItemRepository,
                         InventoryGrpcClient inventoryGrpcClient,
                         OrderEventProducer orderEventProducer,
+                        OrderPricingService orderPricingService,
+                        ReservationFanOut reservationFanOut,
+                        OrderHistoryWriter orderHistoryWriter,
+                        TransactionTemplate transactionTemplate,
+                        OrderCache orderCache,
+                        @Value("${order.reservation-mode:batch}") String reservationMode,
                         MeterRegistry meterRegistry) {
         this.orderRepository = orderRepository;
         this.orderItemRepository = orderItemRepository;
         this.inventoryGrpcClient = inventoryGrpcClient;
         this.orderEventProducer = orderEventProducer;
+        this.orderPricingService = orderPricingService;
+        this.reservationFanOut = reservationFanOut;
+        this.orderHistoryWriter = orderHistoryWriter;
+        this.transactionTemplate = transactionTemplate;
+        this.orderCache = orderCache;
+        this.reservationMode = switch (reservationMode) {
+            case "batch" -> ReservationMode.BATCH;
+            case "per-item" -> ReservationMode.PER_ITEM;
+            case "concurrent" -> ReservationMode.CONCURRENT;
+            default -> throw new IllegalArgumentException("Unknown order.reservation-mode: " + reservationMode);
+        };
 
         this.ordersCreatedCounter = Counter.builder("orders.created.total")
                 .description("Total orders successfully created")
@@ -74,15 +107,35 @@ public class OrderService {
                 .description("Saga failed (payment failure)")
                 .register(meterRegistry);
         this.orderCreationTimer = Timer.builder("orders.creation.duration")
-                .description("End-to-end order creation time (DB + gRPC + Kafka publish)")
+                .description("End-to-end order creation time (DB + gRPC + outbox insert)")
                 .register(meterRegistry);
     }
 
-    @Transactional
+    /**
+     * Creates an order in three short steps so that an order DB connection is held only
+     * while SQL runs, never across an inventory round trip:
+     * 1. insert the PENDING order and its items (one transaction),
+     * 2. reserve stock over gRPC with no connection held,
+     * 3. move the order to INVENTORY_RESERVED, or to CANCELLED when stock ran out
+     *    (one transaction).
+     *
+     * If inventory sheds the reservation (InventoryBusyException, nothing reserved), the
+     * order is CANCELLED at once and the caller gets 429 with inventory's retry delay.
+     *
+     * If the reservation call itself fails (inventory unavailable, deadline), some lines
+     * may be reserved without this service knowing which. The order is then left
+     * PENDING and OrderPendingException is thrown. So is an order whose process died
+     * between steps. PendingOrderCompensator
+     * cancels such orders after order.pending-compensation.timeout and releases the
+     * lines that inventory's reserved events marked.
+     */
     public OrderResponse createOrder(String userEmail, CreateOrderRequest request) {
         return orderCreationTimer.record(() -> {
             log.info("Creating order for user: {}, items: {}", userEmail, request.items().size());
 
+            // Names and prices come from the catalog, not from the request.
+            List<PricedLine> lines = orderPricingService.price(request.items());
+
             BigDecimal totalAmount = BigDecimal.ZERO;
             Order order = Order.builder()
                     .userEmail(userEmail)
@@ -91,53 +144,57 @@ public class OrderService {
                     .totalAmount(BigDecimal.ZERO)
                     .build();
 
-            for (OrderItemRequest itemReq : request.items()) {
-                BigDecimal subtotal = itemReq.unitPrice().multiply(BigDecimal.valueOf(itemReq.quantity()));
+            for (PricedLine line : lines) {
+                BigDecimal subtotal = line.unitPrice().multiply(BigDecimal.valueOf(line.quantity()));
                 totalAmount = totalAmount.add(subtotal);
 
                 OrderItem item = OrderItem.builder()
-                        .productId(itemReq.productId())
-                        .productName(itemReq.productName())
-                        .quantity(itemReq.quantity())
-                        .unitPrice(itemReq.unitPrice())
+                        .productId(line.productId())
+                        .productName(line.productName())
+                        .quantity(line.quantity())
+                        .unitPrice(line.unitPrice())
                         .subtotal(subtotal)
                         .build();
                 order.addItem(item);
             }
 
             order.setTotalAmount(totalAmount);
-            Order savedOrder = orderRepository.save(order);
+            // Step 1: one short transaction, together with the order_history row.
+            Order savedOrder = transactionTemplate.execute(status -> {
+                Order persisted = orderRepository.save(order);
+                orderHistoryWriter.recordCreated(persisted);
+                return persisted;
+            });
             log.info("Order persisted: orderId={}, total={}", savedOrder.getId(), totalAmount);
 
-            for (OrderItem item : savedOrder.getItems()) {
-                ReserveStockResponse response = inventoryGrpcClient.reserveStock(
-                        savedOrder.getId(), item.getProductId(), item.getQuantity());
-
-                if (!response.getSuccess()) {
-                    log.warn("Stock reservation failed for orderId={}, productId={}: {}",
-                            savedOrder.getId(), item.getProductId(), response.getMessage());
-                    savedOrder.setStatus(OrderStatus.CANCELLED);
-                    orderRepository.save(savedOrder);
-                    ordersFailedCounter.increment();
-                    throw new IllegalStateException("Insufficient stock for product: " + item.getProductName());
-                }
-
-                item.setInventoryReserved(true);
+            // Step 2: no transaction, no connection.
+            String outOfStock;
+            try {
+                outOfStock = switch (reservationMode) {
+                    case BATCH -> reserveOrderLines(savedOrder);
+                    case PER_ITEM -> reservePerItem(savedOrder);
+                    case CONCURRENT -> reserveConcurrently(savedOrder);
+                };
+            } catch (InventoryBusyException e) {
+                finishReservation(savedOrder, OrderStatus.CANCELLED);
+                ordersFailedCounter.increment();
+                log.warn("Stock reservation shed for orderId={}, cancelled: {}", savedOrder.getId(), e.getMessage());
+                throw e;
+            } catch (RuntimeException e) {
+                ordersFailedCounter.increment();
+                log.warn("Stock reservation failed for orderId={}, left PENDING for compensation: {}",
+                        savedOrder.getId(), e.getMessage());
+                throw new OrderPendingException(toResponse(savedOrder), e);
             }
 
-            savedOrder.setStatus(OrderStatus.INVENTORY_RESERVED);
-            orderRepository.save(savedOrder);
-
-            OrderCreatedEvent event = new OrderCreatedEvent(
-                    savedOrder.getId(),
-                    savedOrder.getUserEmail(),
-                    savedOrder.getTotalAmount(),
-                    savedOrder.getItems().stream()
-                            .map(i -> new OrderCreatedEvent.OrderItemDetail(
-                                    i.getProductId(), i.getQuantity(), i.getUnitPrice()))
-                            .toList()
-            );
-            orderEventProducer.publishOrderCreated(event);
+            // Step 3.
+            if (outOfStock != null) {
+                finishReservation(savedOrder, OrderStatus.CANCELLED);
+                ordersFailedCounter.increment();
+                throw new IllegalStateException("Insufficient stock for product: " + outOfStock);
+            }
+            // order-created is queued in the same transaction as the status change.
+            finishReservation(savedOrder, OrderStatus.INVENTORY_RESERVED);
 
             ordersCreatedCounter.increment();
             orderItemsCounter.increment(savedOrder.getItems().size());
@@ -148,70 +205,296 @@ public class OrderService {
         });
     }
 
-    @Cacheable(value = "order", key = "#orderId", sync = true)
-    @Transactional(readOnly = true)
-    public OrderResponse getOrder(Long orderId) {
-        Order order = orderRepository.findByIdWithItems(orderId)
-                .orElseThrow(() -> new IllegalArgumentException("Order not found: " + orderId));
-        return toResponse(order);
+    /**
+     * Default: one ReserveOrder call reserves every line in a single inventory
+     * transaction and yields one order-level inventory event.
+     *
+     * @return the name of the product that ran out, or null when all lines are reserved
+     */
+    private String reserveOrderLines(Order order) {
+        Map<Long, Integer> quantities = new LinkedHashMap<>();
+        for (OrderItem item : order.getItems()) {
+            quantities.merge(item.getProductId(), item.getQuantity(), Integer::sum);
+        }
+        ReserveOrderResponse response = inventoryGrpcClient.reserveOrder(order.getId(), quantities);
+        if (response.getSuccess()) {
+            return null;
+        }
+        log.warn("Stock reservation failed for orderId={}, productId={}: {}",
+                order.getId(), response.getFailedProductId(), response.getMessage());
+        return order.getItems().stream()
+                .filter(i -> i.getProductId() == response.getFailedProductId())
+                .map(OrderItem::getProductName)
+                .findFirst()
+                .orElse(String.valueOf(response.getFailedProductId()));
+    }
+
+    /**
+     * order.reservation-mode=per-item: one ReserveStock call (and one inventory-reserved
+     * event) per line. When a line runs out of stock, or inventory sheds it, the lines
+     * already reserved are given back with ReleaseStock before the order is cancelled;
+     * nothing else would release them.
+     */
+    private String reservePerItem(Order order) {
+        List<OrderItem> reserved = new ArrayList<>();
+        for (OrderItem item : order.getItems()) {
+            ReserveStockResponse response;
+            try {
+                response = inventoryGrpcClient.reserveStock(order.getId(), item.getProductId(), item.getQuantity());
+            } catch (InventoryBusyException e) {
+                releaseLines(order.getId(), reserved);
+                throw e;
+            }
+
+            if (!response.getSuccess()) {
+                log.warn("Stock reservation failed for orderId={}, productId={}: {}",
+                        order.getId(), item.getProductId(), response.getMessage());
+                releaseLines(order.getId(), reserved);
+                return item.getProductName();
+            }
+            reserved.add(item);
+        }
+        return null;
+    }
+
+    /**
+     * Gives back lines this request reserved itself. A release that fails is only logged:
+     * the order is (or is about to be) CANCELLED, so PendingOrderCompensator never sees it.
+     */
+    private void releaseLines(Long orderId, List<OrderItem> items) {
+        for (OrderItem item : items) {
+            try {
+                if (!inventoryGrpcClient.releaseStock(orderId, item.getProductId(), item.getQuantity()).getSuccess()) {
+                    log.error("Inventory refused release: orderId={}, productId={}, qty={}",
+                            orderId, item.getProductId(), item.getQuantity());
+                }
+            } catch (RuntimeException e) {
+                log.error("Release failed: orderId={}, productId={}, qty={}, cause: {}",
+                        orderId, item.getProductId(), item.getQuantity(), e.getMessage());
+            }
+        }
     }
 
-    @Transactional(readOnly = true)
-    public Page<OrderResponse> getOrdersByUser(String userEmail, Pageable pageable) {
-        return orderRepository.findByUserEmailOrderByCreatedAtDesc(userEmail, pageable)
-                .map(this::toResponse);
+    /**
+     * order.reservation-mode=concurrent: the per-item calls run in parallel (see
+     * ReservationFanOut); when a line runs out of stock the lines already reserved
+     * are released.
+     */
+    private String reserveConcurrently(Order order) {
+        Optional<OrderItem> outOfStock = reservationFanOut.reserveAll(order.getId(), order.getItems());
+        if (outOfStock.isEmpty()) {
+            return null;
+        }
+        log.warn("Stock reservation failed for orderId={}, productId={}: Insufficient stock",
+                order.getId(), outOfStock.get().getProductId());
+        return outOfStock.get().getProductName();
+    }
+
+    /**
+     * Step 3 of createOrder: PENDING -> target in one short transaction. A successful
+     * reservation queues order-created in the same transaction.
+     *
+     * Only PendingOrderCompensator can move a PENDING order otherwise (cancelOrder
+     * refuses), so losing the compare-and-set means the reservation outlived the
+     * compensation timeout. The compensator released just the lines flagged reserved
+     * when it cancelled; when step 2 had reserved every line, the rest are released here
+     * before the request fails. (Other targets reach this point holding no stock.)
+     */
+    private void finishReservation(Order order, OrderStatus target) {
+        Long orderId = order.getId();
+        LocalDateTime now = LocalDateTime.now();
+        long expectedVersion = order.getVersion() + 1;
+        Finish finish = transactionTemplate.execute(status -> {
+            if (orderRepository.transitionStatus(orderId, OrderStatus.PENDING, target, now) == 0) {
+                // Flags no longer change once the order is CANCELLED (see lockStatus).
+                return new Finish(orderItemRepository.findReservedByOrderId(orderId), 0);
+            }
+            long version = orderRepository.findVersionById(orderId);
+            if (version != expectedVersion) {
+                // Reserved events flagged lines (and bumped the version) during step 2.
+                Set<Long> flagged = orderItemRepository.findReservedByOrderId(orderId).stream()
+                        .map(OrderItem::getId).collect(Collectors.toSet());
+                order.getItems().forEach(item -> item.setInventoryReserved(flagged.contains(item.getId())));
+            }
+            if (target == OrderStatus.INVENTORY_RESERVED) {
+                orderItemRepository.markInventoryReservedForOrder(orderId,
+                        order.getItems().stream().map(OrderItem::getProductId).toList());
+                order.getItems().forEach(item -> item.setInventoryReserved(true));
+                orderHistoryWriter.recordTransition(order, target);
+                orderEventProducer.publishOrderCreated(new OrderCreatedEvent(
+                        orderId,
+                        order.getUserEmail(),
+                        order.getTotalAmount(),
+                        order.getItems().stream()
+                                .map(i -> new OrderCreatedEvent.OrderItemDetail(
+                                        i.getProductId(), i.getQuantity(), i.getUnitPrice()))
+                                .toList()
+                ));
+            } else {
+                orderHistoryWriter.recordTransition(orderId, target);
+            }
+            return new Finish(null, version);
+        });
+        if (finish.releasedByCompensator() != null) {
+            if (target == OrderStatus.INVENTORY_RESERVED) {
+                Set<Long> released = finish.releasedByCompensator().stream()
+                        .map(OrderItem::getId).collect(Collectors.toSet());
+                releaseLines(orderId, order.getItems().stream()
+                        .filter(item -> !released.contains(item.getId()))
+                        .toList());
+            }
+            throw new IllegalStateException("Order " + orderId + " was compensated while reserving stock");
+        }
+        order.setStatus(target);
+        order.setVersion(finish.version());
+        order.setUpdatedAt(now);
+        // Seeds the cache for post-checkout polling, and replaces a PENDING entry a GET
+        // during step 2 may have cached.
+        cacheOrder(toResponse(order));
+    }
+
+    /**
+     * Outcome of step 3: the lines the compensator released when it won the order,
+     * otherwise the order's committed version.
+     */
+    private record Finish(List<OrderItem> releasedByCompensator, long version) {
+    }
+
+    /**
+     * Write-through for the "order" cache: every transition replaces the cached
+     * OrderResponse with the new state instead of evicting it, so a GET right after a
+     * saga step is still a hit. Within a transaction the put waits for the commit; a
+     * rollback leaves the cached entry untouched. OrderCache skips the put when a newer
+     * version is already cached.
+     */
+    private void cacheOrder(OrderResponse response) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            orderCache.put(response);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                orderCache.put(response);
+            }
+        });
+    }
+
+    /**
+     * Cached through OrderCache rather than @Cacheable so a load that raced a saga
+     * transition cannot overwrite the newer state. Concurrent misses for one order each
+     * load it (no per-key lock); the fetch join makes that a single query.
+     */
+    public OrderResponse getOrder(Long orderId) {
+        return orderCache.get(orderId, () -> toResponse(orderRepository.findByIdWithItems(orderId)
+                .orElseThrow(() -> new IllegalArgumentException("Order not found: " + orderId))));
     }
 
     @Transactional
     public void handleInventoryReserved(Long orderId, Long productId) {
         log.info("Marking inventory reserved: orderId={}, productId={}", orderId, productId);
+        if (isCancelled(orderId)) {
+            log.info("Order already cancelled, not marking: orderId={}, productId={}", orderId, productId);
+            return;
+        }
         int updated = orderItemRepository.markInventoryReserved(orderId, productId);
         if (updated == 0) {
-            log.warn("No order item found for orderId={}, productId={}", orderId, productId);
+            log.info("No order item left to mark for orderId={}, productId={}", orderId, productId);
+            return;
         }
+        recordItemsChanged(orderId);
+    }
+
+    /**
+     * One set-based UPDATE for all lines of an order. createOrder already marks the
+     * lines synchronously, so this usually matches nothing; it repairs orders whose
+     * flag update did not commit.
+     */
+    @Transactional
+    public void handleOrderInventoryReserved(Long orderId, List<Long> productIds) {
+        if (isCancelled(orderId)) {
+            log.info("Order already cancelled, not marking: orderId={}", orderId);
+            return;
+        }
+        int updated = orderItemRepository.markInventoryReservedForOrder(orderId, productIds);
+        log.info("Marked inventory reserved: orderId={}, lines={}, updated={}", orderId, productIds.size(), updated);
+        if (updated > 0) {
+            recordItemsChanged(orderId);
+        }
+    }
+
+    /**
+     * The reserved flags are part of the order body, so changing them is a new version:
+     * bumped here, copied to order_history and written through to the cache.
+     */
+    private void recordItemsChanged(Long orderId) {
+        orderRepository.touch(orderId, LocalDateTime.now());
+        Order order = orderRepository.findByIdWithItems(orderId)
+                .orElseThrow(() -> new IllegalArgumentException("Order not found: " + orderId));
+        orderHistoryWriter.recordTransition(order, order.getStatus());
+        cacheOrder(toResponse(order));
+    }
+
+    /**
+     * A cancelled order's reserved flags are what compensation released; a late event
+     * must not change them. The row lock orders this check against the cancel.
+     */
+    private boolean isCancelled(Long orderId) {
+        return orderRepository.lockStatus(orderId)
+                .map(status -> OrderStatus.valueOf(status) == OrderStatus.CANCELLED)
+                .orElse(false);
     }
 
-    @CacheEvict(value = "order", key = "#orderId")
     @Transactional
     public void handlePaymentCompleted(Long orderId) {
         log.info("Payment completed for orderId={}", orderId);
-        Order order = orderRepository.findById(orderId)
+        Order order = orderRepository.findByIdWithItems(orderId)
                 .orElseThrow(() -> new IllegalArgumentException("Order not found: " + orderId));
         order.setStatus(OrderStatus.PAYMENT_COMPLETED);
-        orderRepository.save(order);
+        orderRepository.saveAndFlush(order);
+        orderHistoryWriter.recordUpdate(order);
+        cacheOrder(toResponse(order));
         sagaCompletedCounter.increment();
     }
 
-    @CacheEvict(value = "order", key = "#orderId")
     @Transactional
     public void handlePaymentFailed(Long orderId) {
         log.info("Payment failed for orderId={}", orderId);
-        Order order = orderRepository.findById(orderId)
+        Order order = orderRepository.findByIdWithItems(orderId)
                 .orElseThrow(() -> new IllegalArgumentException("Order not found: " + orderId));
         order.setStatus(OrderStatus.PAYMENT_FAILED);
-        orderRepository.save(order);
+        orderRepository.saveAndFlush(order);
+        orderHistoryWriter.recordUpdate(order);
+        cacheOrder(toResponse(order));
         sagaFailedCounter.increment();
     }
 
-    @CacheEvict(value = "order", key = "#orderId")
     @Transactional
     public OrderResponse cancelOrder(Long orderId, String userEmail) {
-        Order order = orderRepository.findById(orderId)
+        Order order = orderRepository.findByIdWithItems(orderId)
                 .orElseThrow(() -> new IllegalArgumentException("Order not found: " + orderId));
 
         if (!order.getUserEmail().equals(userEmail)) {
             throw new IllegalArgumentException("Order does not belong to this user");
         }
 
+        // createOrder may still be reserving stock; only it or PendingOrderCompensator
+        // settles a PENDING order, so the reserved lines are always given back.
+        if (order.getStatus() == OrderStatus.PENDING) {
+            throw new IllegalStateException("Order " + orderId + " is still being placed; try again shortly");
+        }
         if (order.getStatus() == OrderStatus.SHIPPED || order.getStatus() == OrderStatus.DELIVERED) {
             throw new IllegalStateException("Cannot cancel order in status: " + order.getStatus());
         }
 
         order.setStatus(OrderStatus.CANCELLED);
-        orderRepository.save(order);
+        orderRepository.saveAndFlush(order);
+        orderHistoryWriter.recordUpdate(order);
         ordersCancelledCounter.increment();
         log.info("Order cancelled: orderId={}", orderId);
-        return toResponse(order);
+        OrderResponse response = toResponse(order);
+        cacheOrder(response);
+        return response;
     }
 
     private OrderResponse toResponse(Order order) {
@@ -235,7 +518,12 @@ public class OrderService {
                 order.getShippingAddress(),
                 itemResponses,
                 order.getCreatedAt(),
-                order.getUpdatedAt()
+                order.getUpdatedAt(),
+                order.getVersion()
         );
     }
+
+    private enum ReservationMode {
+        BATCH, PER_ITEM, CONCURRENT
+    }
 }
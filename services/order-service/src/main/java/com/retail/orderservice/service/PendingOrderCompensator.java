@@ -0,0 +1,144 @@
+package com.retail.orderservice.service;
+
+import com.retail.orderservice.entity.OrderItem;
+import com.retail.orderservice.entity.OrderStatus;
+import com.retail.orderservice.grpc.InventoryGrpcClient;
+import com.retail.orderservice.repository.OrderItemRepository;
+import com.retail.orderservice.repository.OrderRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compensation for orders that createOrder left PENDING: the process died between
+ * inserting the order and finishing the reservation, or the reservation call failed
+ * without saying which lines it reserved.
+ *
+ * Every interval, orders PENDING for longer than timeout are moved to CANCELLED with
+ * a compare-and-set on status (so only one replica, and never a late createOrder,
+ * wins each order). The lines that inventory's reserved events have since marked
+ * inventory_reserved are then given back with ReleaseStock. The timeout must cover
+ * the reservation deadline plus event lag: a reserved event that arrives after the
+ * cancel no longer flags its line, so that line is not released. A createOrder that
+ * finishes late releases the lines it reserved that were not flagged.
+ */
+@Slf4j
+@Component
+public class PendingOrderCompensator {
+
+    private final OrderRepository orderRepository;
+    private final OrderItemRepository orderItemRepository;
+    private final InventoryGrpcClient inventoryGrpcClient;
+    private final OrderHistoryWriter orderHistoryWriter;
+    private final TransactionTemplate transactionTemplate;
+    private final CacheManager cacheManager;
+    private final Duration timeout;
+    private final int batchSize;
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(
+            Thread.ofPlatform().name("pending-order-compensator").daemon().factory());
+
+    private final Counter compensatedCounter;
+    private final Counter releasedCounter;
+    private final Counter releaseFailedCounter;
+
+    public PendingOrderCompensator(OrderRepository orderRepository,
+                                   OrderItemRepository orderItemRepository,
+                                   InventoryGrpcClient inventoryGrpcClient,
+                                   OrderHistoryWriter orderHistoryWriter,
+                                   TransactionTemplate transactionTemplate,
+                                   CacheManager cacheManager,
+                                   @Value("${order.pending-compensation.timeout:5m}") Duration timeout,
+                                   @Value("${order.pending-compensation.interval:30s}") Duration interval,
+                                   @Value("${order.pending-compensation.batch-size:100}") int batchSize,
+                                   MeterRegistry meterRegistry) {
+        if (timeout.isNegative() || timeout.isZero()) {
+            throw new IllegalArgumentException("order.pending-compensation.timeout must be positive: " + timeout);
+        }
+        this.orderRepository = orderRepository;
+        this.orderItemRepository = orderItemRepository;
+        this.inventoryGrpcClient = inventoryGrpcClient;
+        this.orderHistoryWriter = orderHistoryWriter;
+        this.transactionTemplate = transactionTemplate;
+        this.cacheManager = cacheManager;
+        this.timeout = timeout;
+        this.batchSize = batchSize;
+
+        this.compensatedCounter = Counter.builder("orders.pending.compensated.total")
+                .description("Orders left PENDING by createOrder and cancelled by compensation")
+                .register(meterRegistry);
+        this.releasedCounter = Counter.builder("orders.pending.released.total")
+                .description("Line reservations released while compensating PENDING orders")
+                .register(meterRegistry);
+        this.releaseFailedCounter = Counter.builder("orders.pending.release.failed.total")
+                .description("Line reservations compensation could not release")
+                .register(meterRegistry);
+
+        long intervalMs = interval.toMillis();
+        scheduler.scheduleWithFixedDelay(this::sweep, intervalMs, intervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        scheduler.shutdownNow();
+    }
+
+    private void sweep() {
+        try {
+            List<Long> orderIds = orderRepository.findIdsByStatusCreatedBefore(
+                    OrderStatus.PENDING, LocalDateTime.now().minus(timeout), Limit.of(batchSize));
+            orderIds.forEach(this::compensate);
+        } catch (RuntimeException e) {
+            log.error("Pending order compensation pass failed", e);
+        }
+    }
+
+    private void compensate(Long orderId) {
+        List<OrderItem> reserved = transactionTemplate.execute(status -> {
+            if (orderRepository.transitionStatus(orderId, OrderStatus.PENDING, OrderStatus.CANCELLED,
+                    LocalDateTime.now()) == 0) {
+                return null;
+            }
+            orderHistoryWriter.recordTransition(orderId, OrderStatus.CANCELLED);
+            return orderItemRepository.findReservedByOrderId(orderId);
+        });
+        if (reserved == null) {
+            // createOrder finished it, or another replica compensated it first.
+            return;
+        }
+        compensatedCounter.increment();
+        Cache cache = cacheManager.getCache("order");
+        if (cache != null) {
+            cache.evict(orderId);
+        }
+        log.warn("Compensated PENDING order: orderId={}, reservedLines={}", orderId, reserved.size());
+
+        for (OrderItem item : reserved) {
+            try {
+                if (inventoryGrpcClient.releaseStock(orderId, item.getProductId(), item.getQuantity()).getSuccess()) {
+                    releasedCounter.increment();
+                    continue;
+                }
+                log.error("Inventory refused release: orderId={}, productId={}, qty={}",
+                        orderId, item.getProductId(), item.getQuantity());
+            } catch (RuntimeException e) {
+                log.error("Release failed: orderId={}, productId={}, qty={}, cause: {}",
+                        orderId, item.getProductId(), item.getQuantity(), e.getMessage());
+            }
+            releaseFailedCounter.increment();
+        }
+    }
+}
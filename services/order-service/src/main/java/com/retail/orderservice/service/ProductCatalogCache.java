@@ -0,0 +1,82 @@
+package com.retail.orderservice.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.retail.inventoryservice.proto.ProductInfo;
+import com.retail.orderservice.grpc.InventoryGrpcClient;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Trusted product names and prices for order pricing, keyed by product id and filled
+ * from inventory's GetProducts RPC.
+ *
+ * Entries carry the inventory product version. A fill never replaces an entry with an
+ * older version, so two racing loads cannot roll a price back. Entries expire after
+ * ttl, which bounds how long a price change can go unseen when nothing forces a
+ * refresh. OrderPricingService forces one for any line whose cached price disagrees
+ * with the client. Hit ratio is exported through Caffeine's cache metrics
+ * (cache.gets{cache="order-product-catalog"}).
+ */
+@Service
+public class ProductCatalogCache {
+
+    /**
+     * One product as inventory last reported it.
+     */
+    public record CatalogEntry(long productId, String name, BigDecimal price, long version) {
+    }
+
+    private final InventoryGrpcClient inventoryGrpcClient;
+    private final Cache<Long, CatalogEntry> entries;
+
+    public ProductCatalogCache(InventoryGrpcClient inventoryGrpcClient,
+                               @Value("${order.price-cache.ttl:60s}") Duration ttl,
+                               @Value("${order.price-cache.max-size:10000}") long maxSize,
+                               MeterRegistry meterRegistry) {
+        this.inventoryGrpcClient = inventoryGrpcClient;
+        this.entries = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, entries, "order-product-catalog");
+    }
+
+    /**
+     * Cached entries for the ids; absent ids are simply missing from the result.
+     */
+    public Map<Long, CatalogEntry> getCached(Collection<Long> productIds) {
+        return entries.getAllPresent(productIds);
+    }
+
+    /**
+     * Loads the ids with one GetProducts call and caches the result. Unknown products
+     * are missing from the returned map.
+     */
+    public Map<Long, CatalogEntry> load(Collection<Long> productIds) {
+        Set<Long> ids = new LinkedHashSet<>(productIds);
+        Map<Long, CatalogEntry> loaded = new HashMap<>();
+        if (ids.isEmpty()) {
+            return loaded;
+        }
+        for (ProductInfo product : inventoryGrpcClient.getProducts(ids).getProductsList()) {
+            CatalogEntry fresh = new CatalogEntry(product.getProductId(), product.getName(),
+                    new BigDecimal(product.getPrice()), product.getVersion());
+            CatalogEntry kept = entries.asMap().merge(fresh.productId(), fresh,
+                    (current, candidate) -> candidate.version() >= current.version() ? candidate : current);
+            loaded.put(kept.productId(), kept);
+        }
+        return loaded;
+    }
+}
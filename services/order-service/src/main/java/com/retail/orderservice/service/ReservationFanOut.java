@@ -0,0 +1,191 @@
+package com.retail.orderservice.service;
+
+import com.retail.orderservice.entity.OrderItem;
+import com.retail.orderservice.grpc.InventoryBusyException;
+import com.retail.orderservice.grpc.InventoryGrpcClient;
+import io.grpc.Deadline;
+import io.grpc.Status;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * order.reservation-mode=concurrent: one ReserveStock call per order line, issued in
+ * parallel on virtual threads instead of one after another, so checkout latency tracks
+ * the slowest line rather than the sum of all lines.
+ *
+ * At most width calls per order are in flight, and every call of an order shares one
+ * gRPC deadline. The first line that fails (no stock, error, deadline) cancels the
+ * calls still running. When a line ran out of stock, every line known to be reserved
+ * is given back with ReleaseStock before the failure is reported; the same applies when
+ * inventory shed a line (InventoryBusyException). When a call failed otherwise,
+ * nothing is released here: the order stays PENDING and PendingOrderCompensator
+ * releases whatever inventory reports as reserved.
+ *
+ * After an out-of-stock line, a call cancelled or failed after it was sent may still
+ * have reserved stock on the inventory side. Those lines cannot be released blindly (a
+ * release is not tied to a reservation), so they are logged and counted in
+ * orders.reservation.fanout.unresolved.total for manual repair.
+ */
+@Slf4j
+@Component
+public class ReservationFanOut {
+
+    private final InventoryGrpcClient inventoryGrpcClient;
+    private final int width;
+    private final Duration deadline;
+
+    private final DistributionSummary widthSummary;
+    private final Counter releasedCounter;
+    private final Counter unresolvedCounter;
+
+    public ReservationFanOut(InventoryGrpcClient inventoryGrpcClient,
+                             @Value("${order.reservation-fan-out.width:8}") int width,
+                             @Value("${order.reservation-fan-out.deadline:3s}") Duration deadline,
+                             MeterRegistry meterRegistry) {
+        if (width < 1) {
+            throw new IllegalArgumentException("order.reservation-fan-out.width must be positive: " + width);
+        }
+        this.inventoryGrpcClient = inventoryGrpcClient;
+        this.width = width;
+        this.deadline = deadline;
+
+        this.widthSummary = DistributionSummary.builder("orders.reservation.fanout.width")
+                .description("Concurrent ReserveStock calls per order")
+                .register(meterRegistry);
+        this.releasedCounter = Counter.builder("orders.reservation.fanout.released.total")
+                .description("Line reservations released after another line of the order failed")
+                .register(meterRegistry);
+        this.unresolvedCounter = Counter.builder("orders.reservation.fanout.unresolved.total")
+                .description("Line reservations cancelled or failed after sending, outcome unknown")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Reserves every line, or none of those it can account for.
+     *
+     * @return empty when all lines are reserved; the line that ran out of stock otherwise
+     * @throws InventoryBusyException when inventory shed a line; the lines known to be
+     *                                reserved have been released
+     * @throws RuntimeException when a call failed (inventory unavailable, deadline); the
+     *                          outstanding calls are cancelled, nothing is released
+     */
+    public Optional<OrderItem> reserveAll(Long orderId, List<OrderItem> items) {
+        int orderWidth = Math.min(width, items.size());
+        widthSummary.record(orderWidth);
+        Deadline orderDeadline = Deadline.after(deadline.toMillis(), TimeUnit.MILLISECONDS);
+        Semaphore permits = new Semaphore(orderWidth);
+
+        List<Future<Boolean>> futures = new ArrayList<>(items.size());
+        // Written by the line threads; read after the executor has terminated.
+        boolean[] sent = new boolean[items.size()];
+        OrderItem outOfStock = null;
+        RuntimeException failure = null;
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            CompletionService<Boolean> completion = new ExecutorCompletionService<>(executor);
+            for (int i = 0; i < items.size(); i++) {
+                int line = i;
+                futures.add(completion.submit(() -> reserveLine(orderId, items.get(line), permits, orderDeadline,
+                        () -> sent[line] = true)));
+            }
+            try {
+                for (int done = 0; done < items.size() && outOfStock == null && failure == null; done++) {
+                    Future<Boolean> future = completion.take();
+                    try {
+                        if (!future.get()) {
+                            outOfStock = items.get(futures.indexOf(future));
+                        }
+                    } catch (ExecutionException e) {
+                        failure = e.getCause() instanceof RuntimeException cause
+                                ? cause
+                                : new IllegalStateException("Stock reservation failed", e.getCause());
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                failure = new IllegalStateException("Interrupted while reserving stock", e);
+            }
+            if (outOfStock != null || failure != null) {
+                // Interrupting a blocking gRPC call cancels it.
+                futures.forEach(future -> future.cancel(true));
+            }
+        } // close() waits for the cancelled calls to unwind, so every future below is settled.
+
+        if (failure != null) {
+            if (failure instanceof InventoryBusyException) {
+                // Shed before touching stock: as settled as an out-of-stock line.
+                releaseReserved(orderId, items, futures, sent);
+            }
+            throw failure;
+        }
+        if (outOfStock == null) {
+            return Optional.empty();
+        }
+        releaseReserved(orderId, items, futures, sent);
+        return Optional.of(outOfStock);
+    }
+
+    private boolean reserveLine(Long orderId, OrderItem item, Semaphore permits, Deadline orderDeadline,
+                                Runnable markSent) throws InterruptedException {
+        if (!permits.tryAcquire(orderDeadline.timeRemaining(TimeUnit.MILLISECONDS), TimeUnit.MILLISECONDS)) {
+            throw Status.DEADLINE_EXCEEDED
+                    .withDescription("Reservation deadline passed before the call was sent")
+                    .asRuntimeException();
+        }
+        try {
+            markSent.run();
+            return inventoryGrpcClient.reserveStock(
+                    orderId, item.getProductId(), item.getQuantity(), orderDeadline).getSuccess();
+        } finally {
+            permits.release();
+        }
+    }
+
+    private void releaseReserved(Long orderId, List<OrderItem> items, List<Future<Boolean>> futures,
+                                 boolean[] sent) {
+        for (int i = 0; i < items.size(); i++) {
+            Future<Boolean> future = futures.get(i);
+            OrderItem item = items.get(i);
+            if (future.state() == Future.State.SUCCESS) {
+                if (future.resultNow()) {
+                    release(orderId, item);
+                }
+            } else if (sent[i]) {
+                // Cancelled or failed after the request went out: inventory may have reserved it.
+                unresolvedCounter.increment();
+                log.error("Reservation outcome unknown: orderId={}, productId={}, qty={}",
+                        orderId, item.getProductId(), item.getQuantity());
+            }
+        }
+    }
+
+    private void release(Long orderId, OrderItem item) {
+        try {
+            if (inventoryGrpcClient.releaseStock(orderId, item.getProductId(), item.getQuantity()).getSuccess()) {
+                releasedCounter.increment();
+            } else {
+                log.error("Inventory refused release: orderId={}, productId={}, qty={}",
+                        orderId, item.getProductId(), item.getQuantity());
+            }
+        } catch (RuntimeException e) {
+            log.error("Release failed: orderId={}, productId={}, qty={}, cause: {}",
+                    orderId, item.getProductId(), item.getQuantity(), e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package com.retail.orderservice.service;
+
+import com.retail.inventoryservice.proto.CheckStockResponse;
+import com.retail.orderservice.dto.OrderItemRequest;
+import com.retail.orderservice.grpc.InventoryGrpcClient;
+import com.retail.orderservice.kafka.event.InventoryAvailabilityEvent;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Local, eventually consistent copy of product availability, replayed from the
+ * compacted "inventory-availability" topic by InventoryAvailabilityConsumer.
+ *
+ * Used only to fail fast: a cart is rejected before any DB write or gRPC call when
+ * the view says a product cannot cover the requested quantity. Products the view has
+ * not heard of are let through, and a pass is never a promise - the gRPC reservation
+ * in OrderService stays the source of truth.
+ *
+ * A sample of pre-rejections is re-checked against Inventory Service in the
+ * background to measure how often the view rejected a cart that would have succeeded.
+ */
+@Slf4j
+@Service
+public class StockAvailabilityView {
+
+    private record Availability(int available, long changeSeq) {}
+
+    private final Map<Long, Availability> availability = new ConcurrentHashMap<>();
+    private final InventoryGrpcClient inventoryGrpcClient;
+    private final boolean enabled;
+    private final double verifySampleRate;
+
+    private final Counter preRejectedCounter;
+    private final Counter falsePositiveCounter;
+    private final Counter verifiedCounter;
+
+    public StockAvailabilityView(InventoryGrpcClient inventoryGrpcClient,
+                                 @Value("${order.stock-view.enabled:true}") boolean enabled,
+                                 @Value("${order.stock-view.verify-sample-rate:0.05}") double verifySampleRate,
+                                 MeterRegistry meterRegistry) {
+        this.inventoryGrpcClient = inventoryGrpcClient;
+        this.enabled = enabled;
+        this.verifySampleRate = verifySampleRate;
+
+        this.preRejectedCounter = Counter.builder("orders.stock.prerejected.total")
+                .description("Orders rejected by the local stock view before any DB or gRPC call")
+                .register(meterRegistry);
+        this.verifiedCounter = Counter.builder("orders.stock.prerejected.verified.total")
+                .description("Pre-rejections re-checked against Inventory Service")
+                .register(meterRegistry);
+        this.falsePositiveCounter = Counter.builder("orders.stock.prerejected.false_positive.total")
+                .description("Re-checked pre-rejections where Inventory Service had enough stock")
+                .register(meterRegistry);
+        Gauge.builder("orders.stock.view.products", availability, Map::size)
+                .description("Products held in the local stock view")
+                .register(meterRegistry);
+    }
+
+    public void apply(InventoryAvailabilityEvent event) {
+        if (event.availableStock() < 0) {
+            availability.computeIfPresent(event.productId(),
+                    (id, current) -> current.changeSeq() < event.changeSeq() ? null : current);
+            return;
+        }
+        availability.merge(event.productId(), new Availability(event.availableStock(), event.changeSeq()),
+                (current, update) -> update.changeSeq() > current.changeSeq() ? update : current);
+    }
+
+    /**
+     * Throws IllegalStateException (409, same as a failed reservation) when the view is
+     * certain the cart cannot be filled.
+     */
+    public void preValidate(List<OrderItemRequest> items) {
+        if (!enabled) {
+            return;
+        }
+        Map<Long, Integer> requested = new LinkedHashMap<>();
+        Map<Long, String> names = new LinkedHashMap<>();
+        for (OrderItemRequest item : items) {
+            requested.merge(item.productId(), item.quantity(), Integer::sum);
+            names.putIfAbsent(item.productId(), item.productName());
+        }
+        for (Map.Entry<Long, Integer> entry : requested.entrySet()) {
+            Availability known = availability.get(entry.getKey());
+            if (known != null && known.available() < entry.getValue()) {
+                preRejectedCounter.increment();
+                log.info("Order pre-rejected by stock view: productId={}, requested={}, available={}",
+                        entry.getKey(), entry.getValue(), known.available());
+                maybeVerify(entry.getKey(), entry.getValue());
+                throw new IllegalStateException("Insufficient stock for product: " + names.get(entry.getKey()));
+            }
+        }
+    }
+
+    private void maybeVerify(long productId, int requested) {
+        if (ThreadLocalRandom.current().nextDouble() >= verifySampleRate) {
+            return;
+        }
+        Thread.ofVirtual().name("stock-view-verify").start(() -> {
+            try {
+                CheckStockResponse actual = inventoryGrpcClient.checkStock(productId);
+                verifiedCounter.increment();
+                if (actual.getAvailableStock() >= requested) {
+                    falsePositiveCounter.increment();
+                    log.debug("Stock view false positive: productId={}, requested={}, actual={}",
+                            productId, requested, actual.getAvailableStock());
+                }
+            } catch (RuntimeException e) {
+                log.debug("Stock view verification failed for productId={}: {}", productId, e.getMessage());
+            }
+        });
+    }
+}
@@ -0,0 +1,3 @@
+-- PendingOrderCompensator scans for orders left PENDING by a failed or interrupted
+-- createOrder. Only a handful are ever PENDING, so a partial index keeps the scan cheap.
+CREATE INDEX idx_orders_pending_created_at ON orders(created_at) WHERE status = 'PENDING';
@@ -0,0 +1,34 @@
+-- Denormalized read model for the order list: one row per order, items as JSONB.
+-- Maintained by OrderHistoryWriter in the same transaction as each order change.
+CREATE TABLE order_history (
+    order_id         BIGINT PRIMARY KEY,
+    user_email       VARCHAR(255)  NOT NULL,
+    status           VARCHAR(30)   NOT NULL,
+    total_amount     NUMERIC(12,2) NOT NULL,
+    shipping_address TEXT          NOT NULL,
+    item_count       INT           NOT NULL,
+    items            JSONB         NOT NULL,
+    version          BIGINT        NOT NULL,
+    created_at       TIMESTAMP     NOT NULL,
+    updated_at       TIMESTAMP     NOT NULL
+);
+
+CREATE INDEX idx_order_history_user_created ON order_history(user_email, created_at DESC, order_id DESC);
+
+INSERT INTO order_history (order_id, user_email, status, total_amount, shipping_address,
+                           item_count, items, version, created_at, updated_at)
+SELECT o.id, o.user_email, o.status, o.total_amount, o.shipping_address,
+       count(i.id),
+       COALESCE(jsonb_agg(jsonb_build_object(
+                    'id', i.id,
+                    'productId', i.product_id,
+                    'productName', i.product_name,
+                    'quantity', i.quantity,
+                    'unitPrice', i.unit_price,
+                    'subtotal', i.subtotal,
+                    'inventoryReserved', i.inventory_reserved) ORDER BY i.id)
+                FILTER (WHERE i.id IS NOT NULL), '[]'::jsonb),
+       o.version, o.created_at, o.updated_at
+FROM orders o
+LEFT JOIN order_items i ON i.order_id = o.id
+GROUP BY o.id;
@@ -0,0 +1,80 @@
+package com.retail.paymentservice.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.data.redis.cache.RedisCacheManager;
+
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * CacheManager that returns a TieredCache (L1 + L2) for configured cache names, so
+ * gets check Caffeine, then Dragonfly, then the DB. Local-only caches (e.g. inventory's
+ * "product-bytes") are returned as-is so they can share @CacheEvict declarations with
+ * the tiered caches.
+ *
+ * Every service keeps an identical copy of this class and TieredCache (each is built
+ * from its own Docker context).
+ */
+public class TieredCacheManager implements CacheManager {
+
+    private final CaffeineCacheManager l1;
+    private final RedisCacheManager l2;
+    private final MeterRegistry meterRegistry;
+    private final Set<String> tieredCacheNames;
+    private final Map<String, Cache> localCaches;
+    private final ConcurrentMap<String, Cache> tieredCaches = new ConcurrentHashMap<>();
+
+    public TieredCacheManager(CaffeineCacheManager l1,
+                              RedisCacheManager l2,
+                              MeterRegistry meterRegistry,
+                              Set<String> tieredCacheNames) {
+        this(l1, l2, meterRegistry, tieredCacheNames, Map.of());
+    }
+
+    public TieredCacheManager(CaffeineCacheManager l1,
+                              RedisCacheManager l2,
+                              MeterRegistry meterRegistry,
+                              Set<String> tieredCacheNames,
+                              Map<String, Cache> localCaches) {
+        this.l1 = l1;
+        this.l2 = l2;
+        this.meterRegistry = meterRegistry;
+        this.tieredCacheNames = tieredCacheNames;
+        this.localCaches = localCaches;
+    }
+
+    @Override
+    public Cache getCache(String name) {
+        Cache local = localCaches.get(name);
+        if (local != null) {
+            return local;
+        }
+        if (!tieredCacheNames.contains(name)) {
+            return null;
+        }
+        return tieredCaches.computeIfAbsent(name, this::createTieredCache);
+    }
+
+    private Cache createTieredCache(String name) {
+        Cache c1 = l1.getCache(name);
+        Cache c2 = l2.getCache(name);
+        if (c1 == null || c2 == null) {
+            return c1 != null ? c1 : c2;
+        }
+        return new TieredCache(c1, c2, meterRegistry);
+    }
+
+    @Override
+    public Collection<String> getCacheNames() {
+        Set<String> names = new LinkedHashSet<>(tieredCacheNames);
+        names.addAll(localCaches.keySet());
+        return names;
+    }
+}
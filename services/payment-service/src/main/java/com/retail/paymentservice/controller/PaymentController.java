@@ -1,7 +1,10 @@
 package com.retail.paymentservice.controller;
 
+import com.retail.paymentservice.dto.PaymentHistoryPage;
 import com.retail.paymentservice.dto.PaymentResponse;
 import com.retail.paymentservice.service.PaymentService;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.http.ResponseEntity;
@@ -34,4 +37,16 @@ public class PaymentController {
         String userEmail = authentication.getName();
         return ResponseEntity.ok(paymentService.getPaymentsByUser(userEmail, pageable));
     }
+
+    /**
+     * Keyset-paged history: pass nextCursor back as cursor for the following page.
+     */
+    @GetMapping(version = "2")
+    public ResponseEntity<PaymentHistoryPage> getMyPaymentsV2(
+            Authentication authentication,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") @Min(1) @Max(100) int limit) {
+        String userEmail = authentication.getName();
+        return ResponseEntity.ok(paymentService.getPaymentSummaries(userEmail, cursor, limit));
+    }
 }
@@ -0,0 +1,9 @@
+package com.retail.paymentservice.dto;
+
+import java.util.List;
+
+public record PaymentHistoryPage(
+        List<PaymentSummary> payments,
+        String nextCursor,
+        boolean hasMore
+) {}
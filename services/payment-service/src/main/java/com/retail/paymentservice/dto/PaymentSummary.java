@@ -0,0 +1,15 @@
+package com.retail.paymentservice.dto;
+
+import com.retail.paymentservice.entity.PaymentStatus;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+public record PaymentSummary(
+        Long id,
+        Long orderId,
+        BigDecimal amount,
+        PaymentStatus status,
+        LocalDateTime createdAt,
+        LocalDateTime completedAt
+) {}
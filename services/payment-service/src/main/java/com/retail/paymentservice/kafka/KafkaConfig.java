@@ -23,11 +23,17 @@ public class KafkaConfig {
     public ProducerFactory<String, Object> producerFactory(KafkaProperties kafkaProperties) {
         Map<String, Object> props = kafkaProperties.buildProducerProperties();
 
+        // Idempotent producer: retries cannot duplicate or reorder records within a partition.
+        props.put(ProducerConfig.ENABLE_IDEMPOTENCE_CONFIG, true);
         props.put(ProducerConfig.ACKS_CONFIG, "all");
-        props.put(ProducerConfig.RETRIES_CONFIG, 3);
+        props.put(ProducerConfig.RETRIES_CONFIG, Integer.MAX_VALUE);
         props.put(ProducerConfig.MAX_IN_FLIGHT_REQUESTS_PER_CONNECTION, 5);
+        // OutboxRelay sends a whole batch before flushing; let it fill record batches.
+        props.put(ProducerConfig.LINGER_MS_CONFIG, 5);
         props.put(ProducerConfig.REQUEST_TIMEOUT_MS_CONFIG, 15000);
-        props.put(ProducerConfig.DELIVERY_TIMEOUT_MS_CONFIG, 120000);
+        // OutboxRelay waits this long (plus linger) for every send to settle before it
+        // releases the rows for another attempt; keep outbox.relay.send-timeout above it.
+        props.put(ProducerConfig.DELIVERY_TIMEOUT_MS_CONFIG, 30000);
         props.put(ProducerConfig.RETRY_BACKOFF_MS_CONFIG, 500);
 
         return new DefaultKafkaProducerFactory<>(props);
@@ -1,11 +1,16 @@
 package com.retail.paymentservice.repository;
 
+import com.retail.paymentservice.dto.PaymentSummary;
 import com.retail.paymentservice.entity.Payment;
 import com.retail.paymentservice.entity.PaymentStatus;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 
+import java.time.LocalDateTime;
+import java.util.List;
 import java.util.Optional;
 
 public interface PaymentRepository extends JpaRepository<Payment, Long> {
@@ -15,4 +20,21 @@ public interface PaymentRepository extends JpaRepository<Payment, Long> {
     Page<Payment> findByUserEmailOrderByCreatedAtDesc(String userEmail, Pageable pageable);
 
     Page<Payment> findByStatusOrderByCreatedAtDesc(PaymentStatus status, Pageable pageable);
+
+    @Query("SELECT new com.retail.paymentservice.dto.PaymentSummary(" +
+           "p.id, p.orderId, p.amount, p.status, p.createdAt, p.completedAt) " +
+           "FROM Payment p WHERE p.userEmail = :userEmail " +
+           "ORDER BY p.createdAt DESC, p.id DESC")
+    List<PaymentSummary> findSummariesByUserEmail(String userEmail, Limit limit);
+
+    /**
+     * Keyset page: the payments strictly older than (createdAt, id). The row comparison
+     * is a single seek on idx_payments_user_created.
+     */
+    @Query("SELECT new com.retail.paymentservice.dto.PaymentSummary(" +
+           "p.id, p.orderId, p.amount, p.status, p.createdAt, p.completedAt) " +
+           "FROM Payment p WHERE p.userEmail = :userEmail AND (p.createdAt, p.id) < (:createdAt, :id) " +
+           "ORDER BY p.createdAt DESC, p.id DESC")
+    List<PaymentSummary> findSummariesByUserEmailBefore(String userEmail, LocalDateTime createdAt, Long id,
+                                                        Limit limit);
 }
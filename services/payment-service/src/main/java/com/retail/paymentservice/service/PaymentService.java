@@ -1,6 +1,8 @@
 package com.retail.paymentservice.service;
 
+import com.retail.paymentservice.dto.PaymentHistoryPage;
 import com.retail.paymentservice.dto.PaymentResponse;
+import com.retail.paymentservice.dto.PaymentSummary;
 import com.retail.paymentservice.entity.Payment;
 import com.retail.paymentservice.entity.PaymentStatus;
 import com.retail.paymentservice.kafka.PaymentEventProducer;
@@ -13,12 +15,14 @@ import io.micrometer.core.instrument.MeterRegistry;
 import io.micrometer.core.instrument.Timer;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.cache.annotation.Cacheable;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
+import java.util.List;
 
 @Slf4j
 @Service
@@ -139,6 +143,31 @@ public class PaymentService {
                 .map(this::toResponse);
     }
 
+    /**
+     * Keyset-paged history, newest first. Seeks past the cursor instead of skipping
+     * OFFSET rows and never counts, so every page costs the same.
+     *
+     * @param cursor nextCursor of the previous page, or null for the newest payments
+     */
+    @Transactional(readOnly = true)
+    public PaymentHistoryPage getPaymentSummaries(String userEmail, String cursor, int limit) {
+        // One extra row says whether another page exists, without counting.
+        List<PaymentSummary> payments;
+        if (cursor == null) {
+            payments = paymentRepository.findSummariesByUserEmail(userEmail, Limit.of(limit + 1));
+        } else {
+            HistoryCursor after = HistoryCursor.decode(cursor);
+            payments = paymentRepository.findSummariesByUserEmailBefore(
+                    userEmail, after.createdAt(), after.id(), Limit.of(limit + 1));
+        }
+        if (payments.size() <= limit) {
+            return new PaymentHistoryPage(payments, null, false);
+        }
+        List<PaymentSummary> page = List.copyOf(payments.subList(0, limit));
+        PaymentSummary last = page.getLast();
+        return new PaymentHistoryPage(page, new HistoryCursor(last.createdAt(), last.id()).encode(), true);
+    }
+
     private PaymentResponse toResponse(Payment payment) {
         return new PaymentResponse(
                 payment.getId(),
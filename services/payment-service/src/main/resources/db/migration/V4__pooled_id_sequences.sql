@@ -0,0 +1,3 @@
+-- INCREMENT must equal the entities' allocationSize (50, Hibernate pooled optimizer).
+ALTER SEQUENCE payments_id_seq INCREMENT BY 50;
+ALTER SEQUENCE failed_events_id_seq INCREMENT BY 50;
@@ -0,0 +1,5 @@
+-- Payment history is listed newest first per user (keyset on created_at, id). The
+-- composite index serves both the seek and the order, so no sort step; it also
+-- covers every lookup idx_payments_user_email served.
+CREATE INDEX idx_payments_user_created ON payments(user_email, created_at DESC, id DESC);
+DROP INDEX idx_payments_user_email;
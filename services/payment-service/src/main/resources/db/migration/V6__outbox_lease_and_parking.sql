@@ -0,0 +1,8 @@
+-- Lease, retry count and parking state for OutboxRelay (see its class comment).
+ALTER TABLE outbox
+    ADD COLUMN attempts     INTEGER   NOT NULL DEFAULT 0,
+    ADD COLUMN last_error   TEXT,
+    ADD COLUMN leased_until TIMESTAMP,
+    ADD COLUMN parked_at    TIMESTAMP;
+
+CREATE INDEX idx_outbox_leased_until ON outbox(leased_until) WHERE leased_until IS NOT NULL;
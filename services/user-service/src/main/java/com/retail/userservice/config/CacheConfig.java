@@ -1,9 +1,9 @@
 package com.retail.userservice.config;
 
 import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.springframework.cache.CacheManager;
 import org.springframework.cache.caffeine.CaffeineCacheManager;
-import org.springframework.cache.support.CompositeCacheManager;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.data.redis.cache.RedisCacheConfiguration;
@@ -13,12 +13,17 @@ import org.springframework.data.redis.serializer.GenericJacksonJsonRedisSerializ
 import org.springframework.data.redis.serializer.RedisSerializationContext.SerializationPair;
 
 import java.time.Duration;
+import java.util.Set;
 
+/**
+ * Two tiers per cache: Caffeine (5s, per pod) in front of Dragonfly (shared across
+ * pods and restarts). See TieredCache for read promotion and write/evict on both tiers.
+ */
 @Configuration
 public class CacheConfig {
 
     @Bean
-    public CacheManager cacheManager(RedisConnectionFactory redisConnectionFactory) {
+    public CacheManager cacheManager(RedisConnectionFactory redisConnectionFactory, MeterRegistry meterRegistry) {
         CaffeineCacheManager l1 = new CaffeineCacheManager("user-profile", "user-profile-v2");
         l1.setCaffeine(Caffeine.newBuilder()
                 .maximumSize(500)
@@ -35,6 +40,6 @@ public class CacheConfig {
                 .cacheDefaults(redisConfig)
                 .build();
 
-        return new CompositeCacheManager(l1, l2);
+        return new TieredCacheManager(l1, l2, meterRegistry, Set.of("user-profile", "user-profile-v2"));
     }
 }